@@ -0,0 +1,110 @@
+package benchmark;
+
+import codec.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import proxy.TypeReference;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较各个编解码器在池化的ByteBuf上编码和解码同一批记录的耗时，同时报告编码后的大小
+ * 运行：gradle :benchmarks:jmh -Pjmh="CodecBenchmark"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    public static class User {
+        public long id;
+        public String name;
+        public String email;
+        public int age;
+        public boolean active;
+        public List<String> tags;
+    }
+
+    private static final Type USERS = new TypeReference<List<User>>() {}.getType();
+
+    @Param({"gson", "jackson", "dsljson", "cbor", "smile"})
+    public String codecName;
+
+    @Param({"10", "1000"})
+    public int records;
+
+    private Codec codec;
+    private List<User> users;
+    private ByteBuf encoded;
+    private ByteBuf out;
+
+    @Setup
+    public void setup() {
+        codec = codec(codecName);
+        users = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            User user = new User();
+            user.id = i;
+            user.name = "user-" + i;
+            user.email = "user-" + i + "@example.com";
+            user.age = i % 100;
+            user.active = i % 2 == 0;
+            user.tags = List.of("a", "b", "c");
+            users.add(user);
+        }
+        codec.prepare(USERS);
+        encoded = PooledByteBufAllocator.DEFAULT.directBuffer();
+        codec.encode(users, encoded);
+        out = PooledByteBufAllocator.DEFAULT.directBuffer(encoded.readableBytes());
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoded.release();
+        out.release();
+    }
+
+    /**
+     * 编码后的字节数，作为encode的辅助结果和耗时一起出现在报告中
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long encodedBytes;
+    }
+
+    @Benchmark
+    public int encode(EncodedSize size) {
+        out.clear();
+        codec.encode(users, out);
+        size.encodedBytes = out.readableBytes();
+        return out.readableBytes();
+    }
+
+    @Benchmark
+    public Object decode() {
+        //duplicate共享内容和引用计数，只是独立的读写索引
+        return codec.decode(encoded.duplicate(), USERS);
+    }
+
+    private static Codec codec(String name) {
+        switch (name) {
+            case "jackson":
+                return new JacksonCodec();
+            case "dsljson":
+                return new DslJsonCodec();
+            case "cbor":
+                return new CborCodec();
+            case "smile":
+                return new SmileCodec();
+            default:
+                return new GsonCodec();
+        }
+    }
+}
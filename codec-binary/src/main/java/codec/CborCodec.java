@@ -0,0 +1,16 @@
+package codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * CBOR（RFC 8949）格式的编解码器
+ */
+public class CborCodec extends JacksonBinaryCodec {
+    public static final String CONTENT_TYPE = "application/cbor";
+
+    public CborCodec() {
+        super(new ObjectMapper(new CBORFactory()).registerModule(new BlackbirdModule()), CONTENT_TYPE);
+    }
+}
@@ -0,0 +1,69 @@
+package codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+
+/**
+ * 基于jackson数据格式模块的二进制编解码器，直接读写ByteBuf
+ * 二进制格式不能按行解码，不能用于NDJSON及需要解码data的SSE
+ */
+public class JacksonBinaryCodec implements Codec {
+    private final ObjectMapper mapper;
+    private final String contentType;
+
+    /**
+     * @param mapper 使用二进制JsonFactory的ObjectMapper
+     * @param contentType 格式对应的媒体类型
+     */
+    public JacksonBinaryCodec(ObjectMapper mapper, String contentType) {
+        this.mapper = mapper;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public void encode(Object object, ByteBuf out) {
+        //ByteBuf的流同时实现了DataInput/DataOutput，需要明确按字节流处理
+        OutputStream output = new ByteBufOutputStream(out);
+        try {
+            mapper.writeValue(output, object);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Object decode(ByteBuf in, Type type) {
+        InputStream input = new ByteBufInputStream(in);
+        try {
+            return mapper.readValue(input, javaType(type));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void prepare(Type type) {
+        //ObjectReader和ObjectWriter创建时会构建并缓存根类型的序列化器
+        JavaType javaType = javaType(type);
+        mapper.readerFor(javaType);
+        mapper.writerFor(javaType);
+    }
+
+    private JavaType javaType(Type type) {
+        return mapper.getTypeFactory().constructType(type);
+    }
+}
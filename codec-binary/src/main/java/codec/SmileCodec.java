@@ -0,0 +1,16 @@
+package codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * Smile格式的编解码器，与json的数据模型相同，适合两端都使用jackson的服务
+ */
+public class SmileCodec extends JacksonBinaryCodec {
+    public static final String CONTENT_TYPE = "application/x-jackson-smile";
+
+    public SmileCodec() {
+        super(new ObjectMapper(new SmileFactory()).registerModule(new BlackbirdModule()), CONTENT_TYPE);
+    }
+}
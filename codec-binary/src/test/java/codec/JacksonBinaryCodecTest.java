@@ -0,0 +1,70 @@
+package codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import proxy.TypeReference;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JacksonBinaryCodecTest {
+    public static class User {
+        public String name;
+        public int age;
+    }
+
+    private static final Type USERS = new TypeReference<List<User>>() {}.getType();
+
+    @Test
+    public void cborRoundTrips() {
+        assertRoundTrips(new CborCodec());
+    }
+
+    @Test
+    public void smileRoundTrips() {
+        assertRoundTrips(new SmileCodec());
+    }
+
+    @Test
+    public void binaryIsSmallerThanJson() {
+        List<User> users = Collections.nCopies(100, user());
+        ByteBuf json = PooledByteBufAllocator.DEFAULT.directBuffer();
+        ByteBuf cbor = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            new GsonCodec().encode(users, json);
+            new CborCodec().encode(users, cbor);
+            assertTrue(cbor.readableBytes() < json.readableBytes());
+        } finally {
+            json.release();
+            cbor.release();
+        }
+    }
+
+    private static void assertRoundTrips(JacksonBinaryCodec codec) {
+        codec.prepare(USERS);
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            codec.encode(Arrays.asList(user(), user()), buf);
+            @SuppressWarnings("unchecked")
+            List<User> users = (List<User>) codec.decode(buf, USERS);
+            assertEquals(2, users.size());
+            assertEquals("张三", users.get(0).name);
+            assertEquals(18, users.get(1).age);
+            assertFalse(buf.isReadable());
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static User user() {
+        User user = new User();
+        user.name = "张三";
+        user.age = 18;
+        return user;
+    }
+}
@@ -0,0 +1,92 @@
+package codec;
+
+import com.dslplatform.json.DslJson;
+import com.dslplatform.json.JsonWriter;
+import com.dslplatform.json.runtime.Settings;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 通过DSL-JSON实现json的编解码
+ * 每个线程复用自己的JsonWriter和读缓冲区，编解码时不再为每个请求分配中间数组
+ */
+public class DslJsonCodec implements JsonCodec {
+    //解码时从ByteBuf读取数据的缓冲区大小
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private final DslJson<Object> dslJson;
+    private final ThreadLocal<JsonWriter> writers;
+    private final ThreadLocal<byte[]> readBuffers = ThreadLocal.withInitial(() -> new byte[READ_BUFFER_SIZE]);
+
+    public DslJsonCodec() {
+        //运行时通过反射分析类型，同时加载编译时生成的转换器
+        this(new DslJson<>(Settings.withRuntime().includeServiceLoader()));
+    }
+
+    /**
+     * @param dslJson 自定义配置的DslJson
+     */
+    public DslJsonCodec(DslJson<Object> dslJson) {
+        this.dslJson = dslJson;
+        this.writers = ThreadLocal.withInitial(dslJson::newWriter);
+    }
+
+    @Override
+    public String encode(Object object) {
+        return write(object).toString();
+    }
+
+    @Override
+    public Object decode(String json, Type type) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        try {
+            return dslJson.deserialize(type, bytes, bytes.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void encode(Object object, ByteBuf out) {
+        JsonWriter writer = write(object);
+        out.writeBytes(writer.getByteBuffer(), 0, writer.size());
+    }
+
+    @Override
+    public Object decode(ByteBuf in, Type type) {
+        try {
+            return dslJson.deserialize(type, new ByteBufInputStream(in), readBuffers.get());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void prepare(Type type) {
+        //DslJson会缓存分析得到的转换器
+        if (dslJson.tryFindReader(type) == null && dslJson.tryFindWriter(type) == null) {
+            throw new IllegalArgumentException("DSL-JSON can not encode or decode " + type);
+        }
+    }
+
+    /**
+     * 把对象编码到当前线程的JsonWriter中
+     * @param object 需要编码的对象
+     * @return 已写入编码结果的JsonWriter，在同一线程下次编码前有效
+     */
+    private JsonWriter write(Object object) {
+        JsonWriter writer = writers.get();
+        writer.reset();
+        try {
+            dslJson.serialize(writer, object);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer;
+    }
+}
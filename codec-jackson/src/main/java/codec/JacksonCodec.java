@@ -0,0 +1,85 @@
+package codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+
+/**
+ * 通过jackson的流式API实现json的编解码，直接读写ByteBuf
+ * 默认注册blackbird模块，用LambdaMetafactory生成的访问器代替反射
+ */
+public class JacksonCodec implements JsonCodec {
+    private final ObjectMapper mapper;
+
+    public JacksonCodec() {
+        this(new ObjectMapper().registerModule(new BlackbirdModule()));
+    }
+
+    /**
+     * @param mapper 自定义配置的ObjectMapper
+     */
+    public JacksonCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public String encode(Object object) {
+        try {
+            return mapper.writeValueAsString(object);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Object decode(String json, Type type) {
+        try {
+            return mapper.readValue(json, javaType(type));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void encode(Object object, ByteBuf out) {
+        //ByteBuf的流同时实现了DataInput/DataOutput，需要明确按字节流处理
+        OutputStream output = new ByteBufOutputStream(out);
+        try {
+            mapper.writeValue(output, object);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Object decode(ByteBuf in, Type type) {
+        InputStream input = new ByteBufInputStream(in);
+        try {
+            return mapper.readValue(input, javaType(type));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void prepare(Type type) {
+        //ObjectReader和ObjectWriter创建时会构建并缓存根类型的序列化器
+        JavaType javaType = javaType(type);
+        mapper.readerFor(javaType);
+        mapper.writerFor(javaType);
+    }
+
+    private JavaType javaType(Type type) {
+        return mapper.getTypeFactory().constructType(type);
+    }
+}
@@ -0,0 +1,52 @@
+package codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import proxy.TypeReference;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JacksonCodecTest {
+    public static class User {
+        public String name;
+        public int age;
+    }
+
+    private static final Type USERS = new TypeReference<List<User>>() {}.getType();
+
+    @Test
+    public void roundTripsThroughByteBuf() {
+        JacksonCodec codec = new JacksonCodec();
+        User user = new User();
+        user.name = "张三";
+        user.age = 18;
+
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            codec.encode(Arrays.asList(user, user), buf);
+            @SuppressWarnings("unchecked")
+            List<User> users = (List<User>) codec.decode(buf, USERS);
+            assertEquals(2, users.size());
+            assertEquals("张三", users.get(0).name);
+            assertEquals(18, users.get(1).age);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void encodesTextLikeGson() {
+        JacksonCodec codec = new JacksonCodec();
+        User user = new User();
+        user.name = "a";
+        user.age = 1;
+        assertEquals(new GsonCodec().encode(user), codec.encode(user));
+        assertEquals("application/json", codec.contentType());
+        codec.prepare(USERS);
+    }
+}
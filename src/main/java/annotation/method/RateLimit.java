@@ -0,0 +1,36 @@
+package annotation.method;
+
+import java.lang.annotation.*;
+
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+/**
+ * 限制方法的请求速率，同一个代理对象上该方法的所有调用共享一个令牌桶
+ * 收到429或带Retry-After的503时，在服务端要求的时间之前不再发出请求
+ */
+public @interface RateLimit {
+    /**
+     * 每秒允许的请求数
+     */
+    double value();
+
+    /**
+     * 允许连续发出的请求数
+     */
+    int burst() default 1;
+
+    Mode mode() default Mode.DELAY;
+
+    /**
+     * DELAY模式下最多等待的毫秒数，需要等待更久的请求被拒绝
+     */
+    long maxDelayMillis() default 10000;
+
+    enum Mode {
+        //在event loop的定时器上等待，到时间后再发送
+        DELAY,
+        //立即以429失败
+        REJECT
+    }
+}
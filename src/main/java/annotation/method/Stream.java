@@ -0,0 +1,26 @@
+package annotation.method;
+
+import java.lang.annotation.*;
+
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+/**
+ * 流式响应，方法的结果类型需要是Flow.Publisher<T>，响应体被增量解码为一条条记录后按需发布
+ * SSE的结果类型为ServerSentEvent时发布原始事件，否则用codec解码事件的data
+ */
+public @interface Stream {
+    Format value() default Format.NDJSON;
+
+    /**
+     * SSE连接断开后是否带着Last-Event-ID自动重连，重连时会重新发送请求
+     */
+    boolean reconnect() default true;
+
+    enum Format {
+        //Server-Sent Events，text/event-stream
+        SSE,
+        //每行一个json，application/x-ndjson
+        NDJSON
+    }
+}
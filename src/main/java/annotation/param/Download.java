@@ -0,0 +1,13 @@
+package annotation.param;
+
+import java.lang.annotation.*;
+
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.PARAMETER})
+/**
+ * 把响应体直接写入到被注解的文件中，用于注解“Path”或“File”，
+ * 方法的结果类型需要与参数类型相同，写完之后回调会收到这个参数
+ */
+public @interface Download {
+}
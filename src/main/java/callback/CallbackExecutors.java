@@ -0,0 +1,122 @@
+package callback;
+
+import handler.ResultAdapter;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 执行回调的线程，默认在netty的event loop中直接执行
+ * 回调比较慢时应当换成线程池或虚拟线程，否则会阻塞同一个event loop上的所有连接
+ */
+public final class CallbackExecutors {
+    //直接在event loop中执行
+    private static final Executor EVENT_LOOP = Runnable::run;
+    //回调抛出的异常记录到这里，不影响连接及执行回调的线程
+    private static final Logger LOGGER = Logger.getLogger(CallbackExecutors.class.getName());
+
+    private CallbackExecutors() {
+    }
+
+    /**
+     * @return 直接在event loop中执行回调，没有线程切换，回调必须足够快且不能阻塞
+     */
+    public static Executor eventLoop() {
+        return EVENT_LOOP;
+    }
+
+    /**
+     * 有界线程池，队列满时在event loop中执行，使event loop自然地减慢读取
+     * @param threads 线程数
+     * @param queueSize 等待执行的回调的最大数量
+     * @return 线程池
+     */
+    public static ExecutorService bounded(int threads, int queueSize) {
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "netty-http-callback-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 每个回调一个虚拟线程，需要JDK 21及以上，运行时检测，不支持时退化为有界线程池
+     * @return 执行回调的线程池
+     */
+    public static ExecutorService virtualThreads() {
+        Method factory = virtualThreadFactory();
+        if (factory != null) {
+            try {
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException ignored) {
+                //退化为有界线程池
+            }
+        }
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        return bounded(threads, threads * 256);
+    }
+
+    /**
+     * @return 当前JVM是否支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        return virtualThreadFactory() != null;
+    }
+
+    /**
+     * 把回调切换到指定的线程中执行，回调抛出的异常记录到日志，不会影响连接
+     * 线程池拒绝执行时释放引用计数的结果（ByteBuf或响应体为ByteBuf的Response），在当前线程中调用onFailed
+     * @param callback 原回调
+     * @param executor 执行回调的线程，为null或eventLoop()时返回原回调
+     * @param <T> 响应的类型
+     * @return 切换线程后的回调
+     */
+    public static <T> HttpCallback<T> dispatch(HttpCallback<T> callback, Executor executor) {
+        if (executor == null || executor == EVENT_LOOP) {
+            return callback;
+        }
+        return new HttpCallback<T>() {
+            @Override
+            public void onSuccess(T response) {
+                try {
+                    executor.execute(() -> runCallback(() -> callback.onSuccess(response)));
+                } catch (RejectedExecutionException e) {
+                    ResultAdapter.release(response);
+                    runCallback(() -> callback.onFailed(0, "callback executor rejected the response", e));
+                }
+            }
+
+            @Override
+            public void onFailed(int code, String message, Exception e) {
+                try {
+                    executor.execute(() -> runCallback(() -> callback.onFailed(code, message, e)));
+                } catch (RejectedExecutionException ex) {
+                    runCallback(() -> callback.onFailed(code, message, e));
+                }
+            }
+        };
+    }
+
+    private static void runCallback(Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "callback threw an exception", e);
+        }
+    }
+
+    private static Method virtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
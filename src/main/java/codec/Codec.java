@@ -0,0 +1,38 @@
+package codec;
+
+import io.netty.buffer.ByteBuf;
+
+import java.lang.reflect.Type;
+
+/**
+ * 请求体和响应体的编解码器接口，直接在netty的ByteBuf上读写，不经过中间的String
+ * 文本格式实现JsonCodec，二进制格式（CBOR、Smile等）直接实现本接口
+ */
+public interface Codec {
+    /**
+     * @return 编码后的媒体类型，同时用于请求的Content-Type和Accept首部
+     */
+    String contentType();
+
+    /**
+     * 把对象编码后写入缓冲区
+     * @param object 需要编码的对象
+     * @param out 请求体的缓冲区
+     */
+    void encode(Object object, ByteBuf out);
+
+    /**
+     * 从缓冲区中解码对象，不改变缓冲区的引用计数
+     * @param in 响应体
+     * @param type 结果的类型
+     * @return 解码后的对象
+     */
+    Object decode(ByteBuf in, Type type);
+
+    /**
+     * 预先为类型构建编解码所需的结构，避免第一次请求时才构建
+     * @param type 需要编解码的类型
+     */
+    default void prepare(Type type) {
+    }
+}
@@ -2,8 +2,18 @@ package codec;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.reflect.TypeToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 
 /**
  * 通过gson实现json的编解码
@@ -22,4 +32,26 @@ public class GsonCodec implements JsonCodec{
     public Object decode(String json, Type type) {
         return gson.fromJson(json, type);
     }
+
+    @Override
+    public void encode(Object object, ByteBuf out) {
+        //直接写入缓冲区，不生成中间的String
+        try (Writer writer = new OutputStreamWriter(new ByteBufOutputStream(out), StandardCharsets.UTF_8)) {
+            gson.toJson(object, writer);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    @Override
+    public Object decode(ByteBuf in, Type type) {
+        //ByteBufInputStream不释放缓冲区，由调用者负责
+        return gson.fromJson(new InputStreamReader(new ByteBufInputStream(in), StandardCharsets.UTF_8), type);
+    }
+
+    @Override
+    public void prepare(Type type) {
+        //gson会缓存构建好的TypeAdapter
+        gson.getAdapter(TypeToken.get(type));
+    }
 }
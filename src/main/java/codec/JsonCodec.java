@@ -1,11 +1,31 @@
 package codec;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 
 /**
  * json的编解码器接口
+ * NDJSON和SSE按行解码，只能使用文本格式的编解码器
  */
-public interface JsonCodec {
+public interface JsonCodec extends Codec {
     String encode(Object object);
     Object decode(String json, Type type);
+
+    @Override
+    default String contentType() {
+        return "application/json";
+    }
+
+    @Override
+    default void encode(Object object, ByteBuf out) {
+        ByteBufUtil.writeUtf8(out, encode(object));
+    }
+
+    @Override
+    default Object decode(ByteBuf in, Type type) {
+        return decode(in.toString(StandardCharsets.UTF_8), type);
+    }
 }
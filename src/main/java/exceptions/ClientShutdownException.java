@@ -0,0 +1,10 @@
+package exceptions;
+
+/**
+ * 客户端已经关闭，请求没有被发送
+ */
+public class ClientShutdownException extends RuntimeException{
+    public ClientShutdownException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package exceptions;
+
+/**
+ * 同步请求失败时抛出，包含与HttpCallback.onFailed相同的错误码
+ */
+public class HttpRequestException extends RuntimeException{
+    private final int code;
+
+    public HttpRequestException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public HttpRequestException(int code, String message, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,10 @@
+package exceptions;
+
+/**
+ * 请求超过了限流的速率，没有被发送
+ */
+public class RateLimitException extends RuntimeException{
+    public RateLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,40 @@
+package handler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * 代替HttpObjectAggregator，用于不需要响应体的结果类型
+ * 响应体边读边丢弃，不受最大长度限制，响应结束时向后传递只有首部的FullHttpResponse
+ */
+public class BodyDiscarder extends ChannelInboundHandlerAdapter {
+    private HttpResponse head;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof FullHttpResponse) {
+            //解码失败时HttpObjectDecoder直接产生完整的响应
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        if (msg instanceof HttpResponse) {
+            head = (HttpResponse) msg;
+        }
+        if (msg instanceof HttpContent) {
+            FullHttpResponse response = null;
+            if (msg instanceof LastHttpContent && head != null) {
+                response = new DefaultFullHttpResponse(head.protocolVersion(), head.status(),
+                        Unpooled.EMPTY_BUFFER, head.headers(), ((LastHttpContent) msg).trailingHeaders());
+                response.setDecoderResult(head.decoderResult());
+                head = null;
+            }
+            ReferenceCountUtil.release(msg);
+            if (response != null) {
+                ctx.fireChannelRead(response);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package handler;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * 把一个连接上的响应体以Flow.Publisher的形式交给调用者
+ * 连接关闭了autoRead，只有当订阅者请求了数据而缓存为空时才会从socket读取，从而实现背压
+ * 所有状态都只在连接的event loop中访问，订阅者的信号也都在event loop中发出
+ * 断线重连时新的连接会注册到同一个event loop上，并通过attach接替之前的连接
+ * @param <E> 发布的记录类型，ByteBuf类型的记录由订阅者负责释放
+ */
+public class ChannelPublisher<E> implements Flow.Publisher<E>, Flow.Subscription {
+    private final EventExecutor executor;
+
+    //当前正在读取的连接
+    private ChannelHandlerContext ctx;
+
+    //已经从连接中读取但还没有被请求的记录
+    private final ArrayDeque<E> queue = new ArrayDeque<>();
+
+    private Flow.Subscriber<? super E> subscriber;
+
+    //订阅者请求但还没有发送的记录数量
+    private long demand = 0;
+
+    //响应体是否已经结束
+    private boolean completed = false;
+    private Throwable error;
+
+    //订阅者已经收到结束信号或者已经取消
+    private boolean terminated = false;
+
+    private boolean draining = false;
+
+    ChannelPublisher(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        this.executor = ctx.executor();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super E> subscriber) {
+        Objects.requireNonNull(subscriber);
+        executor.execute(() -> {
+            if (this.subscriber != null) {
+                subscriber.onSubscribe(this);
+                subscriber.onError(new IllegalStateException("Only one subscriber is allowed"));
+                return;
+            }
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(this);
+            drain();
+        });
+    }
+
+    @Override
+    public void request(long n) {
+        executor.execute(() -> {
+            if (terminated) {
+                return;
+            }
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Requested " + n + " items, must be positive"));
+                ctx.close();
+                return;
+            }
+            demand += n;
+            if (demand < 0) {
+                demand = Long.MAX_VALUE;
+            }
+            drain();
+        });
+    }
+
+    @Override
+    public void cancel() {
+        executor.execute(() -> {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            releaseQueue();
+            ctx.close();
+        });
+    }
+
+    /**
+     * 添加一条从连接中读到的记录，只能在event loop中调用
+     * @param item 记录
+     */
+    void offer(E item) {
+        if (terminated) {
+            ReferenceCountUtil.release(item);
+            return;
+        }
+        queue.add(item);
+        drain();
+    }
+
+    /**
+     * 响应体正常结束，只能在event loop中调用
+     */
+    void complete() {
+        completed = true;
+        drain();
+    }
+
+    /**
+     * 响应体异常结束，尚未发送的记录会被丢弃，只能在event loop中调用
+     * @param cause 异常
+     */
+    public void fail(Throwable cause) {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        error = cause;
+        releaseQueue();
+        drain();
+    }
+
+    /**
+     * 重连成功后由新的连接接替读取，只能在event loop中调用
+     * @param ctx 新连接的handler上下文
+     */
+    void attach(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        drain();
+    }
+
+    boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return 订阅者是否已经收到结束信号或者已经取消
+     */
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    private void drain() {
+        if (draining || subscriber == null || terminated) {
+            return;
+        }
+        draining = true;
+        try {
+            while (demand > 0 && !queue.isEmpty()) {
+                demand--;
+                subscriber.onNext(queue.poll());
+                if (terminated) {
+                    return;
+                }
+            }
+
+            if (completed && queue.isEmpty()) {
+                terminated = true;
+                if (error == null) {
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onError(error);
+                }
+            } else if (!completed && demand > 0) {
+                //缓存已经取完，订阅者还需要更多数据
+                ctx.read();
+            }
+        } catch (Throwable t) {
+            //订阅者违反规范抛出了异常，视为取消
+            terminated = true;
+            releaseQueue();
+            ctx.close();
+        } finally {
+            draining = false;
+        }
+    }
+
+    private void releaseQueue() {
+        E item;
+        while ((item = queue.poll()) != null) {
+            ReferenceCountUtil.release(item);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package handler;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.List;
+
+/**
+ * 把分块到达的响应体增量解码为一条条记录，用于流式响应
+ * @param <E> 解码后记录的类型
+ */
+public interface ContentDecoder<E> {
+    /**
+     * 解码一块响应体
+     * @param content 响应体的一块，调用结束后由handler释放，解码器需要保留时必须retain
+     * @param out 解码得到的记录
+     */
+    void decode(ByteBuf content, List<E> out);
+
+    /**
+     * 响应体结束时调用，输出剩余的记录
+     * @param out 解码得到的记录
+     */
+    default void finish(List<E> out) {
+    }
+
+    /**
+     * 不做解码，直接把每一块响应体交给订阅者，订阅者负责释放
+     * @return 原样输出ByteBuf的解码器
+     */
+    static ContentDecoder<ByteBuf> bytes() {
+        return (content, out) -> {
+            if (content.isReadable()) {
+                out.add(content.retain());
+            }
+        };
+    }
+}
@@ -0,0 +1,216 @@
+package handler;
+
+import callback.HttpCallback;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Flow;
+
+/**
+ * 把流式响应体写入文件，写完之后才回调onSuccess
+ * 每写完一块才请求下一块，内存中最多只有一次读取的数据，失败时删除写了一半的文件
+ * 写文件使用AsynchronousFileChannel，不阻塞event loop，回调可能在event loop或文件IO的线程中执行
+ * @param <T> 交给回调的结果类型，即下载参数本身（Path或File）
+ */
+public class FileDownloadCallback<T> implements HttpCallback<Flow.Publisher<ByteBuf>>, Flow.Subscriber<ByteBuf> {
+    private final Path path;
+    private final T result;
+    private final HttpCallback<T> callback;
+
+    private AsynchronousFileChannel fileChannel;
+    private Flow.Subscription subscription;
+    private final CompletionHandler<Integer, ByteBuffer> writeHandler = new CompletionHandler<Integer, ByteBuffer>() {
+        @Override
+        public void completed(Integer written, ByteBuffer buffer) {
+            written(written, buffer);
+        }
+
+        @Override
+        public void failed(Throwable cause, ByteBuffer buffer) {
+            writeFailed(cause);
+        }
+    };
+
+    //event loop及文件IO的线程都会访问以下状态，由this同步
+    //下一次写入的位置
+    private long position;
+    //正在写入的一块，为null时没有进行中的写入
+    private ByteBuf writing;
+    //响应体已经结束，等待最后一块写完
+    private boolean completed;
+    //已经失败，之后的信号都忽略
+    private boolean failed;
+
+    public FileDownloadCallback(Path path, T result, HttpCallback<T> callback) {
+        this.path = path;
+        this.result = result;
+        this.callback = callback;
+    }
+
+    @Override
+    public void onSuccess(Flow.Publisher<ByteBuf> publisher) {
+        publisher.subscribe(this);
+    }
+
+    @Override
+    public void onFailed(int code, String message, Exception e) {
+        callback.onFailed(code, message, e);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        try {
+            fileChannel = AsynchronousFileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            subscription.cancel();
+            callback.onFailed(0, "can not open " + path, e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(ByteBuf item) {
+        long offset;
+        synchronized (this) {
+            if (failed) {
+                item.release();
+                return;
+            }
+            writing = item;
+            offset = position;
+        }
+        ByteBuffer buffer = item.nioBuffer();
+        try {
+            fileChannel.write(buffer, offset, buffer, writeHandler);
+        } catch (RuntimeException e) {
+            writeFailed(e);
+        }
+    }
+
+    /**
+     * 一次写入完成，没有写完时从新的位置继续写，写完后请求下一块
+     */
+    private void written(int written, ByteBuffer buffer) {
+        long offset;
+        boolean finish;
+        synchronized (this) {
+            position += written;
+            if (failed) {
+                release();
+                return;
+            }
+            if (buffer.hasRemaining()) {
+                offset = position;
+                finish = false;
+            } else {
+                release();
+                offset = -1;
+                finish = completed;
+            }
+        }
+        if (offset >= 0) {
+            try {
+                fileChannel.write(buffer, offset, buffer, writeHandler);
+            } catch (RuntimeException e) {
+                writeFailed(e);
+            }
+        } else if (finish) {
+            finish();
+        } else {
+            subscription.request(1);
+        }
+    }
+
+    /**
+     * 写入失败，取消响应并删除写了一半的文件
+     */
+    private void writeFailed(Throwable cause) {
+        synchronized (this) {
+            release();
+            if (failed) {
+                return;
+            }
+            failed = true;
+        }
+        subscription.cancel();
+        abort();
+        Exception e = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+        callback.onFailed(0, "can not write " + path, e);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (this) {
+            if (failed) {
+                return;
+            }
+            failed = true;
+        }
+        //正在进行的写入会因为文件关闭而失败，由writeFailed释放
+        abort();
+        Exception e = throwable instanceof Exception ? (Exception) throwable : new Exception(throwable);
+        callback.onFailed(0, "download failed : " + throwable.getMessage(), e);
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            if (failed) {
+                return;
+            }
+            if (writing != null) {
+                //最后一块写完后再结束
+                completed = true;
+                return;
+            }
+        }
+        finish();
+    }
+
+    /**
+     * 所有数据都已经写入，关闭文件后回调
+     */
+    private void finish() {
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            abort();
+            callback.onFailed(0, "can not write " + path, e);
+            return;
+        }
+        callback.onSuccess(result);
+    }
+
+    /**
+     * 释放正在写入的一块，需要持有this的锁
+     */
+    private void release() {
+        if (writing != null) {
+            writing.release();
+            writing = null;
+        }
+    }
+
+    /**
+     * 关闭并删除写了一半的文件
+     */
+    private void abort() {
+        try {
+            if (fileChannel != null) {
+                fileChannel.close();
+            }
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            //已经在失败路径上，不再处理
+        }
+    }
+}
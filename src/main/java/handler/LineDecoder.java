@@ -0,0 +1,96 @@
+package handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按行增量解码响应体，跨越多块的行先缓存字节，凑成完整的一行后再转为字符串，不会截断多字节字符
+ * @param <E> 解码后记录的类型
+ */
+public abstract class LineDecoder<E> implements ContentDecoder<E> {
+    private final int maxLineLength;
+
+    //跨块的不完整行
+    private byte[] pending = new byte[0];
+    private int pendingLength = 0;
+
+    protected LineDecoder(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
+
+    @Override
+    public void decode(ByteBuf content, List<E> out) {
+        int index = content.readerIndex();
+        int end = content.writerIndex();
+        while (index < end) {
+            int lf = content.indexOf(index, end, (byte) '\n');
+            if (lf < 0) {
+                appendPending(content, index, end - index);
+                return;
+            }
+
+            String line;
+            if (pendingLength == 0) {
+                line = content.toString(index, lf - index, StandardCharsets.UTF_8);
+            } else {
+                appendPending(content, index, lf - index);
+                line = new String(pending, 0, pendingLength, StandardCharsets.UTF_8);
+                pendingLength = 0;
+            }
+            onLine(stripCr(line), out);
+            index = lf + 1;
+        }
+    }
+
+    @Override
+    public void finish(List<E> out) {
+        if (pendingLength > 0) {
+            String line = new String(pending, 0, pendingLength, StandardCharsets.UTF_8);
+            pendingLength = 0;
+            onLine(stripCr(line), out);
+        }
+        onEnd(out);
+    }
+
+    /**
+     * 丢弃不完整的行，用于重新连接
+     */
+    public void reset() {
+        pendingLength = 0;
+    }
+
+    /**
+     * 解码一个完整的行
+     * @param line 不包含换行符的行
+     * @param out 解码得到的记录
+     */
+    protected abstract void onLine(String line, List<E> out);
+
+    /**
+     * 响应体结束
+     * @param out 解码得到的记录
+     */
+    protected void onEnd(List<E> out) {
+    }
+
+    private void appendPending(ByteBuf content, int index, int length) {
+        int required = pendingLength + length;
+        if (required > maxLineLength) {
+            pendingLength = 0;
+            throw new TooLongFrameException("line is longer than " + maxLineLength + " bytes");
+        }
+        if (required > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(required, pending.length * 2));
+        }
+        content.getBytes(index, pending, pendingLength, length);
+        pendingLength = required;
+    }
+
+    private static String stripCr(String line) {
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+}
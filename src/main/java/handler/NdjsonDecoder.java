@@ -0,0 +1,29 @@
+package handler;
+
+import codec.JsonCodec;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * 解码newline-delimited json，每个非空行解码为一条记录
+ * @param <E> 记录的类型
+ */
+public class NdjsonDecoder<E> extends LineDecoder<E> {
+    private final JsonCodec codec;
+    private final Type elementType;
+
+    public NdjsonDecoder(JsonCodec codec, Type elementType, int maxLineLength) {
+        super(maxLineLength);
+        this.codec = codec;
+        this.elementType = elementType;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void onLine(String line, List<E> out) {
+        if (!line.trim().isEmpty()) {
+            out.add((E) codec.decode(line, elementType));
+        }
+    }
+}
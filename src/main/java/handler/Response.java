@@ -0,0 +1,24 @@
+package handler;
+
+import io.netty.handler.codec.http.HttpHeaders;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 带有状态码及响应首部的结果，结果类型为Response<T>时任何状态码都交给onSuccess
+ * 只有2xx的响应体按T解码，其他状态码的响应体以文本保存在errorBody中
+ * @param <T> 响应体的类型
+ */
+@Data
+@AllArgsConstructor
+public class Response<T> {
+    private int code;
+    private String message;
+    private HttpHeaders headers;
+    private T body;
+    private String errorBody;
+
+    public boolean isSuccessful() {
+        return code >= 200 && code < 300;
+    }
+}
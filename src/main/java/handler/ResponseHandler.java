@@ -1,34 +1,52 @@
 package handler;
 
 import callback.HttpCallback;
-import codec.JsonCodec;
+import codec.Codec;
 import exceptions.HttpEncodeException;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.http.FullHttpResponse;
+import trace.Phase;
+import trace.Span;
 
 import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
 
 /**
  * 用于处理http请求返回的响应的handler
+ * 该handler是pipeline中响应报文的最终持有者，无论成功、失败还是异常，都会释放收到的响应并关闭连接，
+ * 回调只会被执行一次
  * @param <T> 响应的类型
  */
 public class ResponseHandler<T> extends ChannelInboundHandlerAdapter {
     //回调接口
     private final HttpCallback<T> callback;
 
-    //json编解码器
-    private final JsonCodec codec;
+    //响应体的编解码器
+    private final Codec codec;
 
-    //响应的实际类型
-    private final Type resultType;
+    //按结果类型选择的转换方式
+    private final ResultAdapter adapter;
 
-    public ResponseHandler(JsonCodec codec, HttpCallback<T> callback, Type resultType) {
+    //记录解码耗时，没有开启追踪时为null
+    private final Span span;
+
+    //回调是否已经执行过
+    private boolean completed = false;
+
+    public ResponseHandler(Codec codec, HttpCallback<T> callback, Type resultType) {
+        this(codec, callback, resultType, null);
+    }
+
+    public ResponseHandler(Codec codec, HttpCallback<T> callback, Type resultType, Span span) {
+        this(codec, callback, ResultAdapter.of(resultType), span);
+    }
+
+    public ResponseHandler(Codec codec, HttpCallback<T> callback, ResultAdapter adapter, Span span) {
         this.codec = codec;
         this.callback = callback;
-        this.resultType = resultType;
+        this.adapter = adapter;
+        this.span = span;
     }
 
     @Override
@@ -39,34 +57,63 @@ public class ResponseHandler<T> extends ChannelInboundHandlerAdapter {
         }
 
         FullHttpResponse httpResponse = (FullHttpResponse) msg;
-        //解码失败，HTTP报文错误
-        if(httpResponse.decoderResult().isFailure()) {
-            onFailed(httpResponse.status().code(),
-                    httpResponse.status().reasonPhrase(),
-                    new HttpEncodeException("Http request encoding failed"));
-            ctx.fireChannelRead(msg);
-            return;
-        }
+        try {
+            //解码失败，HTTP报文错误
+            if(httpResponse.decoderResult().isFailure()) {
+                onFailed(httpResponse.status().code(),
+                        httpResponse.status().reasonPhrase(),
+                        new HttpEncodeException("Http request encoding failed"));
+                return;
+            }
 
-        if(httpResponse.status().code() == 200) {
-            String content = httpResponse.content().toString(StandardCharsets.UTF_8);
-            //System.out.println("request success");
-            onSuccess(content);
-        } else {
-            onFailed(httpResponse.status().code(),
-                    "failed "+httpResponse.status().code()+" : "+httpResponse.status().reasonPhrase(),
-                    new Exception(httpResponse.status().reasonPhrase()));
+            int code = httpResponse.status().code();
+            if(adapter.acceptsAnyStatus() || (code >= 200 && code < 300)) {
+                onSuccess(httpResponse);
+            } else {
+                onFailed(httpResponse.status().code(),
+                        "failed "+httpResponse.status().code()+" : "+httpResponse.status().reasonPhrase(),
+                        new Exception(httpResponse.status().reasonPhrase()));
+            }
+        } finally {
+            httpResponse.release();
+            ctx.close();
         }
-        httpResponse.content().release();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        Exception e = cause instanceof Exception ? (Exception) cause : new DecoderException(cause);
+        onFailed(0, "request failed : " + cause.getMessage(), e);
+        ctx.close();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        //连接在收到完整响应之前被关闭
+        onFailed(0, "connection closed before response", new Exception("connection closed"));
+        super.channelInactive(ctx);
     }
 
     /**
      * 请求发送成功的回调
-     * @param content 响应报文的content
+     * @param httpResponse 完整的响应，按结果类型转换，由channelRead负责释放
      */
     @SuppressWarnings("unchecked")
-    private void onSuccess(String content) {
-        T response = (T) codec.decode(content, resultType);
+    private void onSuccess(FullHttpResponse httpResponse) {
+        if(completed) {
+            return;
+        }
+        T response;
+        try {
+            response = (T) adapter.adapt(httpResponse, codec);
+        } catch (RuntimeException e) {
+            onFailed(200, "failed to decode response", e);
+            return;
+        }
+        if(span != null) {
+            span.mark(Phase.DECODE);
+        }
+        completed = true;
         callback.onSuccess(response);
     }
 
@@ -77,6 +124,10 @@ public class ResponseHandler<T> extends ChannelInboundHandlerAdapter {
      * @param e 捕捉到的异常
      */
     private void onFailed(int code, String info, Exception e) {
+        if(completed) {
+            return;
+        }
+        completed = true;
         callback.onFailed(code, info, e);
     }
 }
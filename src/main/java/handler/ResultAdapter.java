@@ -0,0 +1,195 @@
+package handler;
+
+import codec.Codec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.ReferenceCountUtil;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把聚合后的响应转换为结果，bind时按结果类型选择
+ * 只有对象类型经过编解码器；ByteBuf、byte[]、String直接取自响应体，Void不需要响应体
+ */
+public abstract class ResultAdapter {
+    private static final ResultAdapter BYTE_BUF = new ResultAdapter("*/*") {
+        @Override
+        public Object adapt(FullHttpResponse response, Codec codec) {
+            //不复制，所有权交给调用者
+            return response.content().retain();
+        }
+    };
+
+    private static final ResultAdapter BYTES = new ResultAdapter("*/*") {
+        @Override
+        public Object adapt(FullHttpResponse response, Codec codec) {
+            return ByteBufUtil.getBytes(response.content());
+        }
+    };
+
+    private static final ResultAdapter STRING = new ResultAdapter("text/plain, */*") {
+        @Override
+        public Object adapt(FullHttpResponse response, Codec codec) {
+            return text(response);
+        }
+    };
+
+    private static final ResultAdapter VOID = new ResultAdapter("*/*") {
+        @Override
+        public Object adapt(FullHttpResponse response, Codec codec) {
+            return null;
+        }
+
+        @Override
+        public boolean discardsBody() {
+            return true;
+        }
+    };
+
+    //请求的Accept首部，为null时使用编解码器的格式
+    private final String accept;
+
+    private ResultAdapter(String accept) {
+        this.accept = accept;
+    }
+
+    /**
+     * @param resultType 结果类型
+     * @return 结果类型对应的转换方式
+     */
+    public static ResultAdapter of(Type resultType) {
+        if (resultType == ByteBuf.class) {
+            return BYTE_BUF;
+        }
+        if (resultType == byte[].class) {
+            return BYTES;
+        }
+        if (resultType == String.class) {
+            return STRING;
+        }
+        if (resultType == Void.class || resultType == void.class) {
+            return VOID;
+        }
+        if (resultType instanceof ParameterizedType && ((ParameterizedType) resultType).getRawType() == Response.class) {
+            Type bodyType = ((ParameterizedType) resultType).getActualTypeArguments()[0];
+            return new WithStatus(of(bodyType));
+        }
+        return new Decoded(resultType);
+    }
+
+    /**
+     * @param response 成功的响应，由调用者释放
+     * @param codec 对象类型使用的编解码器
+     * @return 结果
+     * @throws RuntimeException 编解码器解码失败
+     */
+    public abstract Object adapt(FullHttpResponse response, Codec codec);
+
+    /**
+     * @return 请求的Accept首部，为null时使用编解码器的格式
+     */
+    public String accept() {
+        return accept;
+    }
+
+    /**
+     * @return 是否不需要响应体，为true时响应体不聚合，直接丢弃
+     */
+    public boolean discardsBody() {
+        return false;
+    }
+
+    /**
+     * @return 是否任何状态码都作为结果，为false时只有2xx才是成功
+     */
+    public boolean acceptsAnyStatus() {
+        return false;
+    }
+
+    /**
+     * @return 需要编解码器解码的类型，用于预热，不经过编解码器时为null
+     */
+    public Type codecType() {
+        return null;
+    }
+
+    /**
+     * 结果没有交给调用者时释放，ByteBuf及响应体为ByteBuf的Response持有响应的引用计数
+     * @param result adapt返回的结果，可以为null
+     */
+    public static void release(Object result) {
+        if (result instanceof Response) {
+            result = ((Response<?>) result).getBody();
+        }
+        ReferenceCountUtil.release(result);
+    }
+
+    /**
+     * 按Content-Type的charset解码响应体，没有时使用UTF-8
+     */
+    private static String text(FullHttpResponse response) {
+        return response.content().toString(HttpUtil.getCharset(response, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 由编解码器解码的对象类型
+     */
+    private static final class Decoded extends ResultAdapter {
+        private final Type type;
+
+        Decoded(Type type) {
+            super(null);
+            this.type = type;
+        }
+
+        @Override
+        public Object adapt(FullHttpResponse response, Codec codec) {
+            return codec.decode(response.content(), type);
+        }
+
+        @Override
+        public Type codecType() {
+            return type;
+        }
+    }
+
+    /**
+     * Response<T>，2xx时按T转换响应体
+     */
+    private static final class WithStatus extends ResultAdapter {
+        private final ResultAdapter body;
+
+        WithStatus(ResultAdapter body) {
+            super(body.accept);
+            this.body = body;
+        }
+
+        @Override
+        public Object adapt(FullHttpResponse response, Codec codec) {
+            int code = response.status().code();
+            boolean successful = code >= 200 && code < 300;
+            return new Response<>(code, response.status().reasonPhrase(), response.headers(),
+                    successful ? body.adapt(response, codec) : null,
+                    successful ? null : text(response));
+        }
+
+        @Override
+        public boolean discardsBody() {
+            return body.discardsBody();
+        }
+
+        @Override
+        public boolean acceptsAnyStatus() {
+            return true;
+        }
+
+        @Override
+        public Type codecType() {
+            return body.codecType();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package handler;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 一个Server-Sent Events事件
+ */
+@Data
+@AllArgsConstructor
+public class ServerSentEvent {
+    private String id;
+    private String event;
+    private String data;
+}
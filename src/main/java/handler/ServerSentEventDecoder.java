@@ -0,0 +1,121 @@
+package handler;
+
+import codec.JsonCodec;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * 按照text/event-stream的格式解码事件，空行表示一个事件结束
+ * 最后的事件id和服务端指定的重连间隔会在重连之间保留
+ * @param <E> 记录的类型，为ServerSentEvent时发布原始事件，否则用codec解码事件的data
+ */
+public class ServerSentEventDecoder<E> extends LineDecoder<E> {
+    private final JsonCodec codec;
+    private final Type elementType;
+
+    private final StringBuilder data = new StringBuilder();
+    private String event;
+    private String lastEventId;
+    private long retryMillis;
+
+    public ServerSentEventDecoder(JsonCodec codec, Type elementType, int maxLineLength, long retryMillis) {
+        super(maxLineLength);
+        this.codec = codec;
+        this.elementType = elementType;
+        this.retryMillis = retryMillis;
+    }
+
+    @Override
+    protected void onLine(String line, List<E> out) {
+        if (line.isEmpty()) {
+            dispatch(out);
+            return;
+        }
+        //注释行
+        if (line.charAt(0) == ':') {
+            return;
+        }
+
+        int colon = line.indexOf(':');
+        String field = colon < 0 ? line : line.substring(0, colon);
+        String value = "";
+        if (colon >= 0) {
+            int start = colon + 1;
+            if (start < line.length() && line.charAt(start) == ' ') {
+                start++;
+            }
+            value = line.substring(start);
+        }
+
+        switch (field) {
+            case "data":
+                data.append(value).append('\n');
+                break;
+            case "event":
+                event = value;
+                break;
+            case "id":
+                if (value.indexOf('\0') < 0) {
+                    lastEventId = value;
+                }
+                break;
+            case "retry":
+                try {
+                    retryMillis = Long.parseLong(value);
+                } catch (NumberFormatException ignored) {
+                    //按照规范忽略非法的retry
+                }
+                break;
+            default:
+                //按照规范忽略未知字段
+        }
+    }
+
+    @Override
+    protected void onEnd(List<E> out) {
+        //没有以空行结束的事件不完整，按照规范丢弃
+        data.setLength(0);
+        event = null;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        data.setLength(0);
+        event = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(List<E> out) {
+        if (data.length() == 0) {
+            event = null;
+            return;
+        }
+        //去掉最后一个换行
+        data.setLength(data.length() - 1);
+        String payload = data.toString();
+        data.setLength(0);
+
+        if (elementType == ServerSentEvent.class) {
+            out.add((E) new ServerSentEvent(lastEventId, event == null ? "message" : event, payload));
+        } else {
+            out.add((E) codec.decode(payload, elementType));
+        }
+        event = null;
+    }
+
+    /**
+     * @return 最后收到的事件id，重连时作为Last-Event-ID发送
+     */
+    public String lastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * @return 重连前等待的毫秒数
+     */
+    public long retryMillis() {
+        return retryMillis;
+    }
+}
@@ -0,0 +1,16 @@
+package handler;
+
+import io.netty.channel.EventLoop;
+
+/**
+ * 流式响应的连接断开后重新建立连接，用于SSE的自动重连
+ */
+public interface StreamReconnector {
+    /**
+     * 连接在订阅者取消之前断开时调用
+     * @param publisher 需要由新连接继续发布的Publisher
+     * @param eventLoop 原连接的event loop，新连接必须注册在同一个event loop上
+     * @return false表示不再重连，Publisher将以异常结束
+     */
+    boolean reconnect(ChannelPublisher<?> publisher, EventLoop eventLoop);
+}
@@ -0,0 +1,211 @@
+package handler;
+
+import callback.HttpCallback;
+import exceptions.HttpEncodeException;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * 流式处理http响应的handler，pipeline中不使用HttpObjectAggregator
+ * 收到200的响应首部时回调onSuccess，交给调用者一个Publisher，响应体随后通过Publisher按需发送
+ * 连接需要关闭autoRead，读取由订阅者的请求驱动
+ * 设置了重连时，响应结束或连接断开都会重新连接，由新连接的handler接替原来的Publisher
+ * @param <E> Publisher发布的记录类型
+ */
+public class StreamingResponseHandler<E> extends ChannelInboundHandlerAdapter {
+    //回调接口，成功时得到响应体的Publisher
+    private final HttpCallback<Flow.Publisher<E>> callback;
+
+    //响应体解码器
+    private final ContentDecoder<E> decoder;
+
+    private final List<E> decoded = new ArrayList<>();
+
+    //断线重连，为null时不重连
+    private final StreamReconnector reconnector;
+
+    private ChannelPublisher<E> publisher;
+
+    //当前连接是否已经收到响应首部
+    private boolean responseReceived = false;
+
+    //回调是否已经执行过
+    private boolean completed = false;
+
+    public StreamingResponseHandler(HttpCallback<Flow.Publisher<E>> callback, ContentDecoder<E> decoder) {
+        this(callback, decoder, null, null);
+    }
+
+    /**
+     * @param callback 回调接口，重连时已经执行过
+     * @param decoder 响应体解码器
+     * @param publisher 重连时需要接替的Publisher，首次连接为null
+     * @param reconnector 断线重连，为null时不重连
+     */
+    public StreamingResponseHandler(HttpCallback<Flow.Publisher<E>> callback, ContentDecoder<E> decoder,
+                                    ChannelPublisher<E> publisher, StreamReconnector reconnector) {
+        this.callback = callback;
+        this.decoder = decoder;
+        this.publisher = publisher;
+        this.reconnector = reconnector;
+        this.completed = publisher != null;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (publisher != null && publisher.isTerminated()) {
+            //重连期间订阅者已经取消
+            ctx.close();
+            return;
+        }
+        //读取响应首部
+        ctx.read();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        try {
+            if (msg instanceof HttpResponse) {
+                onResponse(ctx, (HttpResponse) msg);
+            }
+            if (msg instanceof HttpContent && responseReceived) {
+                onContent(ctx, (HttpContent) msg);
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    private void onResponse(ChannelHandlerContext ctx, HttpResponse response) {
+        if (response.decoderResult().isFailure()) {
+            onFailed(response.status().code(), response.status().reasonPhrase(),
+                    new HttpEncodeException("Http request encoding failed"));
+            ctx.close();
+            return;
+        }
+
+        if (publisher != null) {
+            onReconnected(ctx, response);
+            return;
+        }
+
+        if (response.status().codeClass() != HttpStatusClass.SUCCESS) {
+            onFailed(response.status().code(),
+                    "failed " + response.status().code() + " : " + response.status().reasonPhrase(),
+                    new Exception(response.status().reasonPhrase()));
+            ctx.close();
+            return;
+        }
+
+        publisher = new ChannelPublisher<>(ctx);
+        responseReceived = true;
+        completed = true;
+        callback.onSuccess(publisher);
+    }
+
+    /**
+     * 重连后收到响应首部，204表示服务端要求不再重连，其他2xx继续接收事件
+     */
+    private void onReconnected(ChannelHandlerContext ctx, HttpResponse response) {
+        int code = response.status().code();
+        if (code == 204) {
+            publisher.complete();
+        } else if (response.status().codeClass() == HttpStatusClass.SUCCESS) {
+            responseReceived = true;
+            publisher.attach(ctx);
+            return;
+        } else {
+            publisher.fail(new Exception("reconnect failed " + code + " : " + response.status().reasonPhrase()));
+        }
+        ctx.close();
+    }
+
+    private void onContent(ChannelHandlerContext ctx, HttpContent content) {
+        try {
+            decoder.decode(content.content(), decoded);
+            if (content instanceof LastHttpContent) {
+                decoder.finish(decoded);
+            }
+        } catch (RuntimeException e) {
+            publish();
+            publisher.fail(e);
+            ctx.close();
+            return;
+        }
+        publish();
+
+        if (content instanceof LastHttpContent) {
+            //需要重连时由channelInactive处理
+            if (reconnector == null) {
+                publisher.complete();
+            }
+            ctx.close();
+        }
+    }
+
+    private void publish() {
+        for (E item : decoded) {
+            publisher.offer(item);
+        }
+        decoded.clear();
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        //响应首部还没有完整到达时继续读取，之后由订阅者的请求驱动读取
+        if (!responseReceived && ctx.channel().isActive()) {
+            ctx.read();
+        }
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        Exception e = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+        if (reconnector != null && publisher != null) {
+            //关闭连接后由channelInactive重连
+            ctx.close();
+            return;
+        }
+        if (publisher != null) {
+            publisher.fail(e);
+        } else {
+            onFailed(0, "request failed : " + cause.getMessage(), e);
+        }
+        ctx.close();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        //连接在响应结束之前被关闭
+        if (publisher != null && !publisher.isCompleted() && !publisher.isTerminated()
+                && reconnector != null && reconnector.reconnect(publisher, ctx.channel().eventLoop())) {
+            super.channelInactive(ctx);
+            return;
+        }
+        if (publisher != null) {
+            publisher.fail(new Exception("connection closed"));
+        } else {
+            onFailed(0, "connection closed before response", new Exception("connection closed"));
+        }
+        super.channelInactive(ctx);
+    }
+
+    private void onFailed(int code, String info, Exception e) {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        callback.onFailed(code, info, e);
+    }
+}
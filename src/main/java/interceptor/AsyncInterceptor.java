@@ -0,0 +1,18 @@
+package interceptor;
+
+import io.netty.handler.codec.http.HttpRequest;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 需要异步完成的请求拦截器，例如在发送前刷新token
+ * 对于异步拦截器，链中调用的是onRequestAsync而不是onRequest，完成后在连接的event loop中继续执行后面的拦截器
+ */
+public interface AsyncInterceptor extends Interceptor {
+    /**
+     * 请求写出之前调用，不能阻塞event loop，耗时的操作应在返回的CompletionStage中完成
+     * @param request 已经构建好的请求
+     * @return 完成后继续发送请求，异常完成时请求失败
+     */
+    CompletionStage<?> onRequestAsync(HttpRequest request);
+}
@@ -0,0 +1,24 @@
+package interceptor;
+
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+
+/**
+ * 请求和响应的拦截器，按注册的顺序在连接的event loop中执行，不能阻塞
+ * 抛出的异常会使请求失败，并交给回调的onFailed
+ */
+public interface Interceptor {
+    /**
+     * 请求写出之前调用，可以修改请求行和首部，例如添加认证信息或签名
+     * @param request 已经构建好的请求，有请求体时为FullHttpRequest，multipart请求的请求体不可见
+     */
+    default void onRequest(HttpRequest request) {
+    }
+
+    /**
+     * 收到响应首部之后、解码之前调用
+     * @param response 聚合的响应为FullHttpResponse，流式响应只有状态行和首部
+     */
+    default void onResponse(HttpResponse response) {
+    }
+}
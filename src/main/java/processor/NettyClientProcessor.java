@@ -0,0 +1,478 @@
+package processor;
+
+import annotation.header.Header;
+import annotation.mapping.RequestMapping;
+import annotation.method.*;
+import annotation.param.*;
+import proxy.GeneratedClient;
+import proxy.UrlEncoder;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 编译时为每个被@RequestMapping注解的接口生成实现类，代替运行时的动态代理
+ * 生成的类把注解的解析编译成直接的代码，调用时没有反射，NettyProxy.bind会优先使用生成的类
+ * 同时为每个生成的类写出GraalVM native-image的反射配置，bind时只需要反射调用一次构造方法
+ */
+@SupportedAnnotationTypes("annotation.mapping.RequestMapping")
+public class NettyClientProcessor extends AbstractProcessor {
+    //每个路径变量、查询参数预留的长度
+    private static final int VARIABLE_SIZE_HINT = 16;
+
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(RequestMapping.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                generate(type);
+            } catch (GenerationException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Can not write generated client : " + e.getMessage(), type);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 生成一个接口的实现类
+     */
+    private void generate(TypeElement type) throws GenerationException, IOException {
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new GenerationException(type, "Generic client interfaces are not supported");
+        }
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String implementationName = GeneratedClient.implementationName(binaryName);
+        String simpleName = implementationName.substring(implementationName.lastIndexOf('.') + 1);
+
+        String mapping = type.getAnnotation(RequestMapping.class).value();
+        Header classHeader = type.getAnnotation(Header.class);
+
+        StringBuilder fields = new StringBuilder();
+        StringBuilder constructor = new StringBuilder();
+        StringBuilder methods = new StringBuilder();
+        int index = 0;
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            if (method.getEnclosingElement().getKind() != ElementKind.INTERFACE
+                    || !method.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+            generateMethod(method, index++, mapping, classHeader, fields, constructor, methods);
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * Generated by ").append(NettyClientProcessor.class.getName())
+                .append(" for ").append(type.getQualifiedName()).append(", do not edit.\n */\n")
+                .append("public final class ").append(simpleName).append(" implements ")
+                .append(type.getQualifiedName()).append(" {\n")
+                .append("    private final proxy.GeneratedClient $client;\n")
+                .append(fields)
+                .append("\n    public ").append(simpleName).append("(proxy.GeneratedClient $client) {\n")
+                .append("        this.$client = $client;\n")
+                .append(constructor)
+                .append("    }\n")
+                .append(methods)
+                .append("}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(implementationName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(source.toString());
+        }
+        writeReflectConfig(implementationName, type);
+    }
+
+    private void generateMethod(ExecutableElement method, int index, String mapping, Header classHeader,
+                                StringBuilder fields, StringBuilder constructor, StringBuilder methods)
+            throws GenerationException {
+        if (!method.getTypeParameters().isEmpty()) {
+            throw new GenerationException(method, "Generic client methods are not supported");
+        }
+
+        //请求方法及路径
+        String httpMethod = null;
+        String path = null;
+        boolean multipart = false;
+        Get get = method.getAnnotation(Get.class);
+        Post post = method.getAnnotation(Post.class);
+        Put put = method.getAnnotation(Put.class);
+        Delete delete = method.getAnnotation(Delete.class);
+        if (get != null) {
+            httpMethod = "GET";
+            path = get.value();
+        }
+        if (post != null) {
+            httpMethod = "POST";
+            path = post.value();
+            multipart = post.multipart();
+        }
+        if (put != null) {
+            httpMethod = "PUT";
+            path = put.value();
+        }
+        if (delete != null) {
+            httpMethod = "DELETE";
+            path = delete.value();
+        }
+        if (httpMethod == null) {
+            throw new GenerationException(method, "Missing http method annotation");
+        }
+
+        //结果类型
+        TypeMirror returnType = method.getReturnType();
+        TypeElement nettyRequest = elements.getTypeElement("proxy.NettyRequest");
+        if (returnType.getKind() != TypeKind.DECLARED
+                || ((DeclaredType) returnType).getTypeArguments().size() != 1
+                || !types.isAssignable(types.erasure(nettyRequest.asType()), types.erasure(returnType))) {
+            throw new GenerationException(method, "Return type must be a parameterized NettyRequest or Request");
+        }
+        TypeMirror resultType = ((DeclaredType) returnType).getTypeArguments().get(0);
+
+        RateLimit rateLimit = method.getAnnotation(RateLimit.class);
+        if (rateLimit != null && (!(rateLimit.value() > 0) || Double.isInfinite(rateLimit.value())
+                || rateLimit.burst() < 1 || rateLimit.maxDelayMillis() < 0)) {
+            throw new GenerationException(method, "@RateLimit requires a positive rate, burst and max delay");
+        }
+
+        Stream stream = method.getAnnotation(Stream.class);
+        boolean publisher = isPublisher(resultType);
+        if (stream != null && !publisher) {
+            throw new GenerationException(method, "@Stream requires a Flow.Publisher result type");
+        }
+        if (stream == null && publisher && !((DeclaredType) resultType).getTypeArguments().get(0).toString()
+                .equals("io.netty.buffer.ByteBuf")) {
+            throw new GenerationException(method, "Flow.Publisher of decoded records requires @Stream");
+        }
+
+        List<? extends VariableElement> parameters = method.getParameters();
+        Annotation[] annotations = new Annotation[parameters.size()];
+        boolean download = false;
+        //@RequestBody参数类型的表达式，用于预热编解码器
+        StringBuilder bodyTypes = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            annotations[i] = parameterAnnotation(parameters.get(i));
+            if (annotations[i] instanceof Download) {
+                checkDownload(parameters.get(i), resultType);
+                download = true;
+            }
+            if (annotations[i] instanceof Upload && !isType(parameters.get(i).asType(), "java.io.File")) {
+                throw new GenerationException(parameters.get(i), "@Upload requires a java.io.File parameter");
+            }
+            if (annotations[i] instanceof Uploads && !isType(parameters.get(i).asType(), "java.io.File[]")) {
+                throw new GenerationException(parameters.get(i), "@Uploads requires a java.io.File[] parameter");
+            }
+            if ((annotations[i] instanceof Upload || annotations[i] instanceof Uploads) && !multipart) {
+                throw new GenerationException(parameters.get(i), "Uploading files requires @Post(multipart = true)");
+            }
+            if (annotations[i] instanceof RequestBody) {
+                if (bodyTypes.length() > 0 && !multipart) {
+                    throw new GenerationException(parameters.get(i), "Only one @RequestBody is allowed without multipart");
+                }
+                bodyTypes.append(bodyTypes.length() > 0 ? ", " : "").append(typeExpression(parameters.get(i).asType()));
+            }
+        }
+
+        //与MethodSpec.parse一样，路径中没有用到的@PathVariable视为错误
+        String fullPath = GeneratedClient.joinPath(mapping, path);
+        for (int i = 0; i < parameters.size(); i++) {
+            if (annotations[i] instanceof PathVariable
+                    && !fullPath.contains("{" + ((PathVariable) annotations[i]).value() + "}")) {
+                throw new GenerationException(parameters.get(i), "@PathVariable(\"" + ((PathVariable) annotations[i]).value()
+                        + "\") is not used in \"" + fullPath + "\"");
+            }
+        }
+
+        //字段及构造方法
+        String spec = "$m" + index;
+        String result = "$RESULT_" + index;
+        fields.append("    private static final java.lang.reflect.Type ").append(result).append(" = ")
+                .append(typeExpression(resultType)).append(";\n")
+                .append("    private final proxy.MethodSpec ").append(spec).append(";\n");
+        constructor.append("        this.").append(spec).append(" = $client.method(")
+                .append("io.netty.handler.codec.http.HttpMethod.").append(httpMethod).append(", ")
+                .append(result).append(", ").append(multipart).append(", ")
+                .append(stream == null ? "null" : "annotation.method.Stream.Format." + stream.value()).append(", ")
+                .append(stream != null && stream.reconnect()).append(", ")
+                .append(download).append(", ")
+                .append("new java.lang.reflect.Type[]{").append(bodyTypes).append("}");
+        if (classHeader != null) {
+            constructor.append(", ").append(literal(classHeader.key())).append(", ").append(literal(classHeader.val()));
+        }
+        Header methodHeader = method.getAnnotation(Header.class);
+        if (methodHeader != null) {
+            constructor.append(", ").append(literal(methodHeader.key())).append(", ").append(literal(methodHeader.val()));
+        }
+        constructor.append(");\n");
+        if (rateLimit != null) {
+            constructor.append("        $client.rateLimit(this.").append(spec).append(", ")
+                    .append(rateLimit.value()).append(", ").append(rateLimit.burst()).append(", ")
+                    .append("annotation.method.RateLimit.Mode.").append(rateLimit.mode()).append(", ")
+                    .append(rateLimit.maxDelayMillis()).append("L);\n");
+        }
+
+        //方法签名
+        StringBuilder body = new StringBuilder();
+        body.append("\n    @Override\n    public ").append(returnType).append(' ')
+                .append(method.getSimpleName()).append('(');
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                body.append(", ");
+            }
+            body.append(parameters.get(i).asType()).append(' ').append(parameters.get(i).getSimpleName());
+        }
+        body.append(')');
+        if (!method.getThrownTypes().isEmpty()) {
+            body.append(" throws ");
+            for (int i = 0; i < method.getThrownTypes().size(); i++) {
+                body.append(i > 0 ? ", " : "").append(method.getThrownTypes().get(i));
+            }
+        }
+        body.append(" {\n");
+
+        String requestType = "proxy.NettyRequest<" + resultType + ">";
+        body.append("        ").append(requestType).append(" $request = $client.newRequest(").append(spec).append(");\n")
+                .append("        try {\n");
+
+        //路径及路径变量
+        StringBuilder pathCode = new StringBuilder();
+        //第一个路径变量之前的部分在运行时与baseUrl的路径连接
+        String prefix = null;
+        int sizeHint = 0;
+        int start = 0;
+        int open;
+        while ((open = fullPath.indexOf('{', start)) >= 0) {
+            int close = fullPath.indexOf('}', open);
+            if (close < 0) {
+                throw new GenerationException(method, "Unclosed path variable in \"" + fullPath + "\"");
+            }
+            String name = fullPath.substring(open + 1, close);
+            VariableElement parameter = findPathVariable(name, parameters, annotations, method);
+            if (prefix == null) {
+                prefix = fullPath.substring(start, open);
+            } else {
+                appendLiteral(pathCode, fullPath.substring(start, open));
+            }
+            pathCode.append("            proxy.GeneratedClient.appendPath($uri, ")
+                    .append(parameter.getSimpleName()).append(");\n");
+            sizeHint += open - start + VARIABLE_SIZE_HINT;
+            start = close + 1;
+        }
+        if (prefix == null) {
+            prefix = fullPath.substring(start);
+        } else {
+            appendLiteral(pathCode, fullPath.substring(start));
+        }
+        sizeHint += fullPath.length() - start;
+
+        //查询参数
+        StringBuilder queryCode = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (annotations[i] instanceof RequestParam) {
+                StringBuilder name = new StringBuilder();
+                UrlEncoder.appendQuery(name, ((RequestParam) annotations[i]).value());
+                queryCode.append("            $separator = proxy.GeneratedClient.appendQuery($uri, $separator, ")
+                        .append(literal(name.toString())).append(", ").append(parameters.get(i).getSimpleName())
+                        .append(");\n");
+                sizeHint += name.length() + 2 + VARIABLE_SIZE_HINT;
+            }
+        }
+
+        body.append("            java.lang.StringBuilder $uri = $client.uri(").append(sizeHint).append(", ")
+                .append(literal(prefix)).append(");\n")
+                .append(pathCode);
+        if (queryCode.length() > 0) {
+            body.append("            char $separator = '").append(fullPath.indexOf('?') >= 0 ? '&' : '?').append("';\n")
+                    .append(queryCode);
+        }
+
+        //请求体、上传及下载
+        for (int i = 0; i < parameters.size(); i++) {
+            Name name = parameters.get(i).getSimpleName();
+            if (annotations[i] instanceof RequestBody) {
+                body.append("            $client.body($request, ").append(spec).append(", ")
+                        .append(literal(((RequestBody) annotations[i]).value())).append(", ").append(name).append(");\n");
+            } else if (annotations[i] instanceof Upload) {
+                body.append("            $client.upload($request, ")
+                        .append(literal(((Upload) annotations[i]).value())).append(", ").append(name).append(");\n");
+            } else if (annotations[i] instanceof Uploads) {
+                body.append("            $client.uploads($request, new String[]{");
+                String[] names = ((Uploads) annotations[i]).value();
+                for (int j = 0; j < names.length; j++) {
+                    body.append(j > 0 ? ", " : "").append(literal(names[j]));
+                }
+                body.append("}, ").append(name).append(");\n");
+            } else if (annotations[i] instanceof Download) {
+                body.append("            $client.download($request, ").append(name).append(");\n");
+            }
+        }
+
+        body.append("            return $client.complete($request, $uri);\n")
+                .append("        } catch (RuntimeException $e) {\n")
+                .append("            return $client.fail($request, $e);\n")
+                .append("        }\n")
+                .append("    }\n");
+        methods.append(body);
+    }
+
+    /**
+     * 与动态代理一样，每个参数只使用第一个HTTP相关的注解
+     */
+    private Annotation parameterAnnotation(VariableElement parameter) {
+        Class<?>[] supported = {RequestBody.class, PathVariable.class, RequestParam.class,
+                Upload.class, Uploads.class, Download.class};
+        for (AnnotationMirror mirror : parameter.getAnnotationMirrors()) {
+            String name = mirror.getAnnotationType().toString();
+            for (Class<?> annotationType : supported) {
+                if (annotationType.getName().equals(name)) {
+                    @SuppressWarnings("unchecked")
+                    Annotation annotation = parameter.getAnnotation((Class<? extends Annotation>) annotationType);
+                    return annotation;
+                }
+            }
+        }
+        return null;
+    }
+
+    private VariableElement findPathVariable(String name, List<? extends VariableElement> parameters,
+                                             Annotation[] annotations, ExecutableElement method)
+            throws GenerationException {
+        for (int i = 0; i < parameters.size(); i++) {
+            if (annotations[i] instanceof PathVariable && ((PathVariable) annotations[i]).value().equals(name)) {
+                return parameters.get(i);
+            }
+        }
+        throw new GenerationException(method, "No @PathVariable(\"" + name + "\") parameter");
+    }
+
+    private void checkDownload(VariableElement parameter, TypeMirror resultType) throws GenerationException {
+        TypeMirror type = parameter.asType();
+        if ((!isType(type, "java.nio.file.Path") && !isType(type, "java.io.File")) || !types.isSameType(type, resultType)) {
+            throw new GenerationException(parameter, "@Download requires a Path or File parameter of the result type");
+        }
+    }
+
+    private boolean isPublisher(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && types.erasure(type).toString().equals("java.util.concurrent.Flow.Publisher");
+    }
+
+    private static boolean isType(TypeMirror type, String name) {
+        return type.toString().equals(name);
+    }
+
+    /**
+     * 结果类型及请求体类型的表达式，泛型类型通过TypeReference保留实际类型
+     */
+    private static String typeExpression(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return type + ".class";
+        }
+        if (type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).getTypeArguments().isEmpty()) {
+            return type + ".class";
+        }
+        return "new proxy.TypeReference<" + type + ">() {}.getType()";
+    }
+
+    private static void appendLiteral(StringBuilder code, String literal) {
+        if (!literal.isEmpty()) {
+            code.append("            $uri.append(").append(literal(literal)).append(");\n");
+        }
+    }
+
+    /**
+     * @return Java字符串字面量
+     */
+    private static String literal(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7E) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * 写出native-image的反射配置，只需要注册生成的类的构造方法
+     */
+    private void writeReflectConfig(String implementationName, TypeElement type) throws IOException {
+        FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                "META-INF/native-image/netty-http-client/" + implementationName + "/reflect-config.json", type);
+        try (Writer writer = file.openWriter()) {
+            writer.write("[\n  {\n    \"name\": \"" + implementationName + "\",\n"
+                    + "    \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": [\"proxy.GeneratedClient\"]}]\n"
+                    + "  }\n]\n");
+        }
+    }
+
+    /**
+     * 接口不能生成实现类，作为编译错误报告在对应的元素上
+     */
+    private static class GenerationException extends Exception {
+        private final Element element;
+
+        GenerationException(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package proxy;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分配器统计信息的快照
+ */
+@Data
+@NoArgsConstructor
+public class AllocatorStats {
+    private long usedHeapMemory;
+    private long usedDirectMemory;
+
+    //使用线程缓存的线程数，及每个线程缓存的缓冲区数量
+    private int numThreadLocalCaches;
+    private int smallCacheSize;
+    private int normalCacheSize;
+    private int chunkSize;
+
+    private List<ArenaStats> heapArenas = Collections.emptyList();
+    private List<ArenaStats> directArenas = Collections.emptyList();
+
+    /**
+     * 一个arena的使用情况
+     * 命中线程缓存的分配不经过arena，numAllocations是未命中线程缓存的分配次数
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ArenaStats {
+        private int numThreadCaches;
+        private long numAllocations;
+        private long numDeallocations;
+        private long numActiveAllocations;
+        private long numActiveBytes;
+    }
+}
@@ -0,0 +1,77 @@
+package proxy;
+
+import io.netty.buffer.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端可以使用的内存分配器及其统计信息
+ * 使用独立的池化分配器时，客户端占用的直接内存不再与进程中其他使用netty默认分配器的组件混在一起
+ */
+public final class Allocators {
+    private Allocators() {
+    }
+
+    /**
+     * @return netty默认的池化分配器，与进程中的其他组件共享
+     */
+    public static ByteBufAllocator pooled() {
+        return PooledByteBufAllocator.DEFAULT;
+    }
+
+    /**
+     * 创建独立的池化分配器
+     * @param preferDirect true时请求体和响应使用直接内存，否则使用堆内存
+     * @param arenas arena的数量，通常不超过event loop的线程数
+     * @param smallCacheSize 每个线程缓存的small规格缓冲区的数量，响应多在几十KB以内时可以调大
+     * @param normalCacheSize 每个线程缓存的normal规格缓冲区的数量，大响应较多时可以调大，为0时不缓存
+     * @return 池化分配器
+     */
+    public static ByteBufAllocator pooled(boolean preferDirect, int arenas, int smallCacheSize, int normalCacheSize) {
+        return new PooledByteBufAllocator(preferDirect, arenas, arenas,
+                PooledByteBufAllocator.defaultPageSize(), PooledByteBufAllocator.defaultMaxOrder(),
+                smallCacheSize, normalCacheSize, PooledByteBufAllocator.defaultUseCacheForAllThreads());
+    }
+
+    /**
+     * @param preferDirect true时使用直接内存，否则使用堆内存
+     * @return 不池化的分配器，每次分配新的内存
+     */
+    public static ByteBufAllocator unpooled(boolean preferDirect) {
+        return new UnpooledByteBufAllocator(preferDirect);
+    }
+
+    /**
+     * 读取分配器当前的统计信息
+     * @param allocator 客户端使用的分配器
+     * @return 统计信息的快照，不是池化分配器时只有内存用量
+     */
+    public static AllocatorStats stats(ByteBufAllocator allocator) {
+        AllocatorStats stats = new AllocatorStats();
+        if (allocator instanceof ByteBufAllocatorMetricProvider) {
+            ByteBufAllocatorMetric metric = ((ByteBufAllocatorMetricProvider) allocator).metric();
+            stats.setUsedHeapMemory(metric.usedHeapMemory());
+            stats.setUsedDirectMemory(metric.usedDirectMemory());
+        }
+        if (allocator instanceof PooledByteBufAllocator) {
+            PooledByteBufAllocatorMetric metric = ((PooledByteBufAllocator) allocator).metric();
+            stats.setNumThreadLocalCaches(metric.numThreadLocalCaches());
+            stats.setSmallCacheSize(metric.smallCacheSize());
+            stats.setNormalCacheSize(metric.normalCacheSize());
+            stats.setChunkSize(metric.chunkSize());
+            stats.setHeapArenas(arenas(metric.heapArenas()));
+            stats.setDirectArenas(arenas(metric.directArenas()));
+        }
+        return stats;
+    }
+
+    private static List<AllocatorStats.ArenaStats> arenas(List<PoolArenaMetric> metrics) {
+        List<AllocatorStats.ArenaStats> arenas = new ArrayList<>(metrics.size());
+        for (PoolArenaMetric metric : metrics) {
+            arenas.add(new AllocatorStats.ArenaStats(metric.numThreadCaches(), metric.numAllocations(),
+                    metric.numDeallocations(), metric.numActiveAllocations(), metric.numActiveBytes()));
+        }
+        return arenas;
+    }
+}
@@ -0,0 +1,15 @@
+package proxy;
+
+/**
+ * 异步请求的句柄，用于放弃已经发出的请求
+ */
+public interface Cancellable {
+    /**
+     * 取消请求：取消限流的等待或正在进行的连接，已经建立的连接以RST关闭，释放请求体及正在上传的文件
+     * 回调以code为0、异常为CancellationException失败一次，之后不会再收到任何回调
+     * @return 请求已经完成或已经取消时返回false
+     */
+    boolean cancel();
+
+    boolean isCancelled();
+}
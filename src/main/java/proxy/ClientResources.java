@@ -0,0 +1,165 @@
+package proxy;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端发送请求使用的资源：event loop及请求体、连接使用的分配器
+ * 默认所有客户端共享同一组资源；延迟要求不同的客户端可以使用独立的资源，互相之间不会因为占用event loop而影响
+ * 独立的资源可以被多个客户端共享，由创建者关闭
+ */
+public final class ClientResources implements AutoCloseable {
+    //close等待进行中的请求的毫秒数
+    static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    //关闭event loop时等待其中的任务执行完的秒数
+    private static final long TERMINATION_TIMEOUT_SECONDS = 5;
+
+    private static final ClientResources SHARED = new ClientResources(
+            new NioEventLoopGroup(), PooledByteBufAllocator.DEFAULT, 0, true);
+
+    private final EventLoopGroup group;
+    private final ByteBufAllocator allocator;
+    private final int threads;
+    private final boolean shared;
+    private final RequestTracker tracker = new RequestTracker();
+
+    //第一次连接unix domain socket时才创建的native event loop
+    private volatile EventLoopGroup domainSocketGroup;
+    private CompletableFuture<Void> terminated;
+
+    private ClientResources(EventLoopGroup group, ByteBufAllocator allocator, int threads, boolean shared) {
+        this.group = group;
+        this.allocator = allocator;
+        this.threads = threads;
+        this.shared = shared;
+    }
+
+    /**
+     * @return 进程中所有客户端默认共享的资源，不能被关闭
+     */
+    public static ClientResources shared() {
+        return SHARED;
+    }
+
+    /**
+     * 创建独立的资源，使用自己的event loop及池化分配器
+     * 关闭后event loop的线程退出，线程缓存的池化缓冲区随之释放
+     * @param threads event loop的线程数
+     * @return 新的资源
+     * @throws IllegalArgumentException 线程数不是正数
+     */
+    public static ClientResources create(int threads) throws IllegalArgumentException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive : " + threads);
+        }
+        ByteBufAllocator allocator = Allocators.pooled(PooledByteBufAllocator.defaultPreferDirect(), threads,
+                PooledByteBufAllocator.defaultSmallCacheSize(), PooledByteBufAllocator.defaultNormalCacheSize());
+        return new ClientResources(new NioEventLoopGroup(threads), allocator, threads, false);
+    }
+
+    /**
+     * @return 请求体及连接默认使用的分配器
+     */
+    public ByteBufAllocator allocator() {
+        return allocator;
+    }
+
+    /**
+     * @return 是否已经开始关闭
+     */
+    public boolean isShutdown() {
+        return tracker.isClosed();
+    }
+
+    /**
+     * 按传输方式选择连接注册的event loop，domain socket只能注册到native的event loop
+     * @param transport 目标地址的传输方式
+     * @return 连接注册的event loop
+     */
+    EventLoopGroup group(Transport transport) {
+        if (transport != Transport.DOMAIN_SOCKET) {
+            return group;
+        }
+        EventLoopGroup domainSocketGroup = this.domainSocketGroup;
+        if (domainSocketGroup == null) {
+            synchronized (this) {
+                domainSocketGroup = this.domainSocketGroup;
+                if (domainSocketGroup == null) {
+                    domainSocketGroup = Transport.newDomainSocketGroup(threads);
+                    this.domainSocketGroup = domainSocketGroup;
+                }
+            }
+        }
+        return domainSocketGroup;
+    }
+
+    /**
+     * @return 当前线程是否是这组资源的event loop
+     */
+    boolean inEventLoop() {
+        return inEventLoop(group) || inEventLoop(domainSocketGroup);
+    }
+
+    private static boolean inEventLoop(EventLoopGroup group) {
+        if (group == null) {
+            return false;
+        }
+        for (EventExecutor executor : group) {
+            if (executor.inEventLoop()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    RequestTracker tracker() {
+        return tracker;
+    }
+
+    /**
+     * 优雅地关闭：立即拒绝新的请求（以ClientShutdownException失败），等待进行中的请求完成，
+     * 超时后取消剩下的请求，最后关闭event loop
+     * @param timeout 最多等待进行中的请求的时间
+     * @param unit 时间单位
+     * @return event loop的线程都退出后完成，重复调用返回同一个future
+     * @throws IllegalStateException 关闭共享的资源
+     */
+    public synchronized CompletableFuture<Void> shutdownGracefully(long timeout, TimeUnit unit) throws IllegalStateException {
+        if (shared) {
+            throw new IllegalStateException("The shared client resources can not be shut down");
+        }
+        if (terminated == null) {
+            terminated = tracker.close(timeout, unit)
+                    .thenCompose(v -> terminate(group))
+                    .thenCompose(v -> terminate(domainSocketGroup));
+        }
+        return terminated;
+    }
+
+    /**
+     * 以默认的10秒超时关闭，并等待event loop退出
+     */
+    @Override
+    public void close() {
+        shutdownGracefully(DEFAULT_SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).join();
+    }
+
+    private static CompletableFuture<Void> terminate(EventLoopGroup group) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (group == null) {
+            future.complete(null);
+        } else {
+            //请求已经全部结束，不需要静默期
+            group.shutdownGracefully(0, TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .addListener(f -> future.complete(null));
+        }
+        return future;
+    }
+}
@@ -0,0 +1,143 @@
+package proxy;
+
+import exceptions.NettyProxyException;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.unix.DomainSocketAddress;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * 请求的目标地址，即URL中的scheme、host和port，在bind的时候解析一次
+ * unix://和local://没有端口，host分别是socket文件的路径和LocalServerChannel绑定的名字
+ */
+final class Endpoint {
+    //http的默认端口
+    private static final int DEFAULT_PORT = 80;
+
+    private final String scheme;
+    private final String host;
+    private final int port;
+    private final Transport transport;
+    //连接的地址，TCP的地址未解析，每次连接时由netty解析域名
+    private final SocketAddress address;
+
+    Endpoint(String scheme, String host, int port) {
+        this.scheme = scheme;
+        this.host = host;
+        this.port = port;
+        this.transport = Transport.of(scheme);
+        switch (transport) {
+            case DOMAIN_SOCKET:
+                this.address = new DomainSocketAddress(host);
+                break;
+            case LOCAL:
+                this.address = new LocalAddress(host);
+                break;
+            default:
+                this.address = InetSocketAddress.createUnresolved(host, port);
+        }
+    }
+
+    /**
+     * 解析URL中的scheme、host和port，没有指定端口时使用80
+     * unix://的socket路径到第一个':'为止，之后是请求的路径，例如 unix:///var/run/app.sock:/user
+     * @param url 完整的URL，例如 http://localhost:8080/user
+     * @return 解析后的目标地址
+     * @throws NettyProxyException URL不合法，或者是https://，客户端还不支持TLS
+     */
+    static Endpoint parse(String url) {
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd <= 0) {
+            throw new NettyProxyException("Invalid url, missing scheme : " + url);
+        }
+        String scheme = url.substring(0, schemeEnd).toLowerCase();
+        if ("https".equals(scheme)) {
+            //pipeline中没有SslHandler，不能把请求以明文发到TLS端口
+            throw new NettyProxyException("https is not supported, the client has no TLS support : " + url);
+        }
+        int hostStart = schemeEnd + 3;
+        int hostEnd = originLength(url);
+
+        String authority = url.substring(hostStart, hostEnd);
+        if ("unix".equals(scheme) || "local".equals(scheme)) {
+            if (authority.isEmpty()) {
+                throw new NettyProxyException("Invalid url, missing " + ("unix".equals(scheme) ? "socket path" : "name")
+                        + " : " + url);
+            }
+            return new Endpoint(scheme, authority, 0);
+        }
+        int portStart = authority.lastIndexOf(':');
+        if (portStart >= 0 && authority.indexOf(']') < portStart) {
+            try {
+                int port = Integer.parseInt(authority.substring(portStart + 1));
+                return new Endpoint(scheme, authority.substring(0, portStart), port);
+            } catch (NumberFormatException e) {
+                throw new NettyProxyException("Invalid port in url : " + url);
+            }
+        }
+        return new Endpoint(scheme, authority, DEFAULT_PORT);
+    }
+
+    /**
+     * 去掉URL中的scheme和host部分，只保留路径
+     * @param url 完整的URL
+     * @return URL的路径部分，可能为空字符串
+     */
+    static String stripOrigin(String url) {
+        int originLength = originLength(url);
+        //跳过unix://中分隔socket路径和请求路径的':'
+        if (originLength < url.length() && url.charAt(originLength) == ':') {
+            originLength++;
+        }
+        return url.substring(originLength);
+    }
+
+    private static int originLength(String url) {
+        int hostStart = url.indexOf("://");
+        boolean unix = hostStart == 4 && url.regionMatches(true, 0, "unix", 0, 4);
+        hostStart = hostStart < 0 ? 0 : hostStart + 3;
+        for (int i = hostStart; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (unix ? c == ':' : c == '/' || c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return url.length();
+    }
+
+    String scheme() {
+        return scheme;
+    }
+
+    String host() {
+        return host;
+    }
+
+    int port() {
+        return port;
+    }
+
+    /**
+     * @return HTTP/1.1请求的Host首部，是默认端口时省略端口，unix://和local://没有主机名，使用localhost
+     */
+    String hostHeader() {
+        if (transport != Transport.TCP) {
+            return "localhost";
+        }
+        return port == DEFAULT_PORT ? host : host + ":" + port;
+    }
+
+    Transport transport() {
+        return transport;
+    }
+
+    SocketAddress address() {
+        return address;
+    }
+
+    @Override
+    public String toString() {
+        return transport == Transport.TCP ? scheme + "://" + host + ":" + port : scheme + "://" + host;
+    }
+}
@@ -0,0 +1,77 @@
+package proxy;
+
+import io.netty.channel.DefaultMaxMessagesRecvByteBufAllocator;
+import io.netty.util.internal.MathUtil;
+
+/**
+ * 按目标地址自适应的读缓冲区分配器
+ * 每个请求使用新的连接，netty的AdaptiveRecvByteBufAllocator在每个连接上都从初始大小重新学习，
+ * 这里由同一目标地址的所有连接共享观察到的读取大小，新连接直接从学到的大小开始
+ */
+final class EndpointRecvByteBufAllocator extends DefaultMaxMessagesRecvByteBufAllocator {
+    //与netty的socket连接默认值相同
+    private static final int MAX_MESSAGES_PER_READ = 16;
+
+    private final int minimum;
+    private final int maximum;
+
+    //观察到的单次读取大小的滑动平均，连接之间无锁共享，并发更新时以最后一次为准
+    private volatile int learned;
+
+    /**
+     * @param minimum 读缓冲区的最小值
+     * @param initial 还没有观察到响应时的初始值
+     * @param maximum 读缓冲区的最大值
+     */
+    EndpointRecvByteBufAllocator(int minimum, int initial, int maximum) {
+        super(MAX_MESSAGES_PER_READ);
+        if (minimum <= 0 || initial < minimum || maximum < initial) {
+            throw new IllegalArgumentException("Require 0 < minimum <= initial <= maximum");
+        }
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.learned = initial;
+    }
+
+    /**
+     * @return 新连接第一次读取时使用的缓冲区大小
+     */
+    int initialGuess() {
+        return Math.min(maximum, Math.max(minimum, MathUtil.findNextPositivePowerOfTwo(learned)));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public Handle newHandle() {
+        return new EndpointHandle();
+    }
+
+    private final class EndpointHandle extends MaxMessageHandle {
+        private int next = initialGuess();
+        private int largest;
+
+        @Override
+        public int guess() {
+            return next;
+        }
+
+        @Override
+        public void lastBytesRead(int bytes) {
+            //一次读取填满了缓冲区，说明响应还有更多数据，下一次读取加倍
+            if (bytes == attemptedBytesRead()) {
+                next = Math.min(maximum, next << 1);
+            }
+            largest = Math.max(largest, bytes);
+            super.lastBytesRead(bytes);
+        }
+
+        @Override
+        public void readComplete() {
+            if (largest > 0) {
+                //平滑地向观察到的大小靠拢，避免一个异常的响应改变所有新连接
+                learned = Math.max(minimum, (learned * 3 + largest) / 4);
+                largest = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package proxy;
+
+import annotation.method.RateLimit;
+import annotation.method.Stream;
+import exceptions.ParamException;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 注解处理器生成的接口实现类在运行时使用的入口，生成的代码通过它创建和填充请求，不需要反射
+ * 只应由生成的代码使用
+ */
+public final class GeneratedClient {
+    //生成的实现类名的后缀
+    public static final String IMPLEMENTATION_SUFFIX = "_NettyImpl";
+
+    private final NettyProxy proxy;
+
+    //baseUrl的路径部分
+    private final String basePath;
+
+    //是否已经通过builder开启了multipart
+    private final boolean multipart;
+
+    //生成的类创建的所有方法的请求信息，用于预热
+    private final List<MethodSpec> methods = new ArrayList<>();
+
+    GeneratedClient(NettyProxy proxy, String basePath, boolean multipart) {
+        this.proxy = proxy;
+        this.basePath = basePath;
+        this.multipart = multipart;
+    }
+
+    /**
+     * 生成的实现类的类名，嵌套接口的外部类名用'_'连接
+     * @param interfaceName 接口的二进制类名，例如 test.Main$FileService
+     * @return 实现类的类名，例如 test.Main_FileService_NettyImpl
+     */
+    public static String implementationName(String interfaceName) {
+        return interfaceName.replace('$', '_') + IMPLEMENTATION_SUFFIX;
+    }
+
+    /**
+     * 与动态代理一样连接两段路径，生成代码时用于连接RequestMapping和方法上的路径
+     * @param parent 父路径
+     * @param child 子路径
+     * @return 中间恰好有一个'/'的路径
+     */
+    public static String joinPath(String parent, String child) {
+        return UrlTemplate.join(parent, child);
+    }
+
+    /**
+     * 创建一个方法的请求信息，生成的类在构造时为每个方法调用一次
+     * @param httpMethod 请求方法
+     * @param resultType 结果类型
+     * @param multipart 方法上是否开启了multipart
+     * @param stream @Stream的格式，没有@Stream时为null
+     * @param reconnect SSE是否断线重连
+     * @param download 是否有@Download参数
+     * @param bodyTypes @RequestBody参数的类型
+     * @param headers 方法及接口上的请求首部，key和value交替排列
+     * @return 方法的请求信息
+     */
+    public MethodSpec method(HttpMethod httpMethod, Type resultType, boolean multipart, Stream.Format stream,
+                             boolean reconnect, boolean download, Type[] bodyTypes, String... headers) {
+        HttpHeaders httpHeaders = new DefaultHttpHeaders();
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            httpHeaders.add(headers[i], headers[i + 1]);
+        }
+        MethodSpec spec = MethodSpec.generated(httpMethod, resultType, httpHeaders, this.multipart || multipart,
+                stream, reconnect, download, bodyTypes);
+        methods.add(spec);
+        return spec;
+    }
+
+    /**
+     * 为方法开启@RateLimit的限流，参数已经在编译时检查过
+     * @param spec 方法的请求信息
+     * @param permitsPerSecond 每秒允许的请求数
+     * @param burst 允许连续发出的请求数
+     * @param mode 超过速率时等待还是拒绝
+     * @param maxDelayMillis 最多等待的毫秒数
+     * @return 方法的请求信息
+     */
+    public MethodSpec rateLimit(MethodSpec spec, double permitsPerSecond, int burst, RateLimit.Mode mode,
+                                long maxDelayMillis) {
+        spec.rateLimiter(new RateLimiter(permitsPerSecond, burst, mode, maxDelayMillis));
+        return spec;
+    }
+
+    List<MethodSpec> methods() {
+        return methods;
+    }
+
+    /**
+     * @param spec 方法的请求信息
+     * @param <T> 结果类型
+     * @return 新的请求
+     */
+    @SuppressWarnings("unchecked")
+    public <T> NettyRequest<T> newRequest(MethodSpec spec) {
+        return (NettyRequest<T>) proxy.newRequest(spec);
+    }
+
+    /**
+     * @param sizeHint 生成代码估算的路径长度
+     * @param prefix 方法路径中第一个路径变量之前的部分
+     * @return 已经写入baseUrl路径部分及prefix的StringBuilder，与UrlTemplate一样总是以'/'开头
+     */
+    public StringBuilder uri(int sizeHint, String prefix) {
+        String path = UrlTemplate.join(basePath, prefix);
+        StringBuilder uri = new StringBuilder(basePath.length() + sizeHint + 1);
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            uri.append('/');
+        }
+        return uri.append(path);
+    }
+
+    /**
+     * 追加一个路径变量
+     * @param uri 正在拼接的URI
+     * @param value 路径变量的值
+     * @throws ParamException 值为null
+     */
+    public static void appendPath(StringBuilder uri, Object value) throws ParamException {
+        if (value == null) {
+            throw new ParamException("Path variable can not be null");
+        }
+        UrlEncoder.appendPath(uri, value.toString());
+    }
+
+    /**
+     * 追加一个查询参数，集合和数组会展开为多个同名参数，null被忽略
+     * @param uri 正在拼接的URI
+     * @param separator 下一个参数之前的分隔符
+     * @param name 已经编码过的参数名
+     * @param value 参数值
+     * @return 再下一个参数之前的分隔符
+     */
+    public static char appendQuery(StringBuilder uri, char separator, String name, Object value) {
+        return UrlTemplate.appendQuery(uri, separator, name, value);
+    }
+
+    public void body(NettyRequest<?> request, MethodSpec spec, String name, Object value) {
+        proxy.body(spec, request, name, value);
+    }
+
+    public void download(NettyRequest<?> request, Object target) throws ParamException {
+        proxy.download(request, target);
+    }
+
+    public void upload(NettyRequest<?> request, String name, Object file) throws ParamException {
+        proxy.upload(request, name, file);
+    }
+
+    public void uploads(NettyRequest<?> request, String[] names, Object files) throws ParamException {
+        proxy.uploads(request, names, files);
+    }
+
+    /**
+     * 设置拼接好的URI，完成请求的构建
+     * @param request 请求
+     * @param uri 拼接好的URI
+     * @param <T> 结果类型
+     * @return 请求本身
+     */
+    public <T> NettyRequest<T> complete(NettyRequest<T> request, StringBuilder uri) {
+        return request.uri(uri.toString());
+    }
+
+    /**
+     * 构建请求时出现异常，与动态代理一样打印异常并返回null
+     * @param request 请求
+     * @param e 异常
+     * @param <T> 结果类型
+     * @return null
+     */
+    public <T> NettyRequest<T> fail(NettyRequest<T> request, RuntimeException e) {
+        request.discard();
+        e.printStackTrace();
+        return null;
+    }
+}
@@ -0,0 +1,118 @@
+package proxy;
+
+import interceptor.AsyncInterceptor;
+import interceptor.Interceptor;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * 不可变的拦截器链，由代理的所有请求共享
+ * 没有注册拦截器时请求上的链为null，发送请求时不会创建任何lambda或handler
+ */
+final class InterceptorChain {
+    private final Interceptor[] interceptors;
+
+    //无状态，所有连接共享同一个实例
+    private final ResponseInterceptorHandler responseHandler = new ResponseInterceptorHandler();
+
+    private InterceptorChain(Interceptor[] interceptors) {
+        this.interceptors = interceptors;
+    }
+
+    /**
+     * @param chain 原来的链，可以为null
+     * @param interceptor 添加到末尾的拦截器
+     * @return 新的链
+     */
+    static InterceptorChain append(InterceptorChain chain, Interceptor interceptor) {
+        if (interceptor == null) {
+            throw new NullPointerException("interceptor");
+        }
+        Interceptor[] interceptors = chain == null ? new Interceptor[1]
+                : Arrays.copyOf(chain.interceptors, chain.interceptors.length + 1);
+        interceptors[interceptors.length - 1] = interceptor;
+        return new InterceptorChain(interceptors);
+    }
+
+    /**
+     * @return 在响应解码之前执行拦截器的handler
+     */
+    ChannelHandler responseHandler() {
+        return responseHandler;
+    }
+
+    /**
+     * 依次执行请求拦截器，异步拦截器完成后回到event loop继续
+     * @param request 已经构建好的请求
+     * @param eventLoop 连接的event loop
+     * @param next 所有拦截器执行完后写出请求
+     * @param failed 拦截器抛出异常或异步完成失败
+     */
+    void onRequest(HttpRequest request, EventLoop eventLoop, Runnable next, Consumer<Throwable> failed) {
+        proceed(0, request, eventLoop, next, failed);
+    }
+
+    private void proceed(int index, HttpRequest request, EventLoop eventLoop, Runnable next, Consumer<Throwable> failed) {
+        for (int i = index; i < interceptors.length; i++) {
+            Interceptor interceptor = interceptors[i];
+            try {
+                if (interceptor instanceof AsyncInterceptor) {
+                    int resume = i + 1;
+                    ((AsyncInterceptor) interceptor).onRequestAsync(request).whenComplete((result, cause) -> {
+                        if (eventLoop.inEventLoop()) {
+                            resume(resume, request, eventLoop, next, failed, cause);
+                        } else {
+                            eventLoop.execute(() -> resume(resume, request, eventLoop, next, failed, cause));
+                        }
+                    });
+                    return;
+                }
+                interceptor.onRequest(request);
+            } catch (RuntimeException e) {
+                failed.accept(e);
+                return;
+            }
+        }
+        next.run();
+    }
+
+    private void resume(int index, HttpRequest request, EventLoop eventLoop, Runnable next,
+                        Consumer<Throwable> failed, Throwable cause) {
+        if (cause != null) {
+            failed.accept(cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause);
+        } else {
+            proceed(index, request, eventLoop, next, failed);
+        }
+    }
+
+    /**
+     * 在响应交给ResponseHandler或StreamingResponseHandler之前执行响应拦截器
+     */
+    @ChannelHandler.Sharable
+    private final class ResponseInterceptorHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof HttpResponse) {
+                try {
+                    for (Interceptor interceptor : interceptors) {
+                        interceptor.onResponse((HttpResponse) msg);
+                    }
+                } catch (RuntimeException e) {
+                    ReferenceCountUtil.release(msg);
+                    ctx.fireExceptionCaught(e);
+                    return;
+                }
+            }
+            ctx.fireChannelRead(msg);
+        }
+    }
+}
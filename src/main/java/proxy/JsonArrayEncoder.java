@@ -0,0 +1,103 @@
+package proxy;
+
+import codec.JsonCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.stream.ChunkedInput;
+
+import java.util.Iterator;
+
+/**
+ * 以chunked传输编码写出的JSON数组请求体，由pipeline中的ChunkedWriteHandler按需读取
+ * 元素在读取时才逐个编码，连接不可写时暂停，所以无论数组多大，内存中只有正在写出的几块
+ */
+final class JsonArrayEncoder implements ChunkedInput<HttpContent> {
+    //每块至少编码到该长度才写出，单个元素超过时一块只包含一个元素
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private final JsonCodec codec;
+    private final Iterator<?> elements;
+    //元素来自Stream时，写完或中止后关闭它
+    private final AutoCloseable source;
+
+    private boolean started = false;
+    private boolean ended = false;
+    private long progress = 0;
+
+    /**
+     * @param codec 元素的编解码器
+     * @param elements 数组的元素，只在event loop中遍历
+     * @param source 写完或中止后需要关闭的来源，可以为null
+     */
+    JsonArrayEncoder(JsonCodec codec, Iterator<?> elements, AutoCloseable source) {
+        this.codec = codec;
+        this.elements = elements;
+        this.source = source;
+    }
+
+    @Override
+    public boolean isEndOfInput() {
+        return ended;
+    }
+
+    @Override
+    public void close() {
+        ended = true;
+        if (source != null) {
+            try {
+                source.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    @Deprecated
+    @Override
+    public HttpContent readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public HttpContent readChunk(ByteBufAllocator allocator) throws Exception {
+        if (ended) {
+            return null;
+        }
+        ByteBuf chunk = allocator.buffer(CHUNK_SIZE);
+        try {
+            if (!started) {
+                chunk.writeByte('[');
+            }
+            while (chunk.readableBytes() < CHUNK_SIZE && elements.hasNext()) {
+                if (started) {
+                    chunk.writeByte(',');
+                }
+                started = true;
+                codec.encode(elements.next(), chunk);
+            }
+            started = true;
+            if (!elements.hasNext()) {
+                chunk.writeByte(']');
+                ended = true;
+            }
+        } catch (RuntimeException e) {
+            chunk.release();
+            throw e;
+        }
+        progress += chunk.readableBytes();
+        return ended ? new DefaultLastHttpContent(chunk) : new DefaultHttpContent(chunk);
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public long progress() {
+        return progress;
+    }
+}
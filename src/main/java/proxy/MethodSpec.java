@@ -0,0 +1,335 @@
+package proxy;
+
+import annotation.header.Header;
+import annotation.method.*;
+import annotation.param.*;
+import exceptions.NettyProxyException;
+import handler.ResultAdapter;
+import handler.ServerSentEvent;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * 接口方法在bind时解析出的请求信息，之后每次调用都直接使用，不再解析注解
+ * 注解处理器生成的代码持有该类的实例，所以类是公开的，但没有公开的成员
+ */
+public final class MethodSpec {
+    private final HttpMethod httpMethod;
+    private final UrlTemplate urlTemplate;
+    private final Type resultType;
+    private final HttpHeaders headers;
+    private final boolean multipart;
+    private final ResponseMode responseMode;
+
+    //聚合的响应转换为结果的方式，流式响应为null
+    private final ResultAdapter resultAdapter;
+
+    //@Stream的记录类型及是否断线重连
+    private final Type elementType;
+    private final boolean reconnect;
+
+    //每个参数上的第一个注解，没有注解的参数为null
+    private final Annotation[] parameterAnnotations;
+
+    //@RequestBody参数的类型，用于预热编解码器
+    private final Type[] bodyTypes;
+
+    //@RateLimit的令牌桶，方法的所有调用共享，没有限流时为null
+    private RateLimiter rateLimiter;
+
+    private MethodSpec(HttpMethod httpMethod, UrlTemplate urlTemplate, Type resultType, HttpHeaders headers,
+                       boolean multipart, ResponseMode responseMode, boolean reconnect,
+                       Annotation[] parameterAnnotations, Type[] bodyTypes) {
+        this.httpMethod = httpMethod;
+        this.urlTemplate = urlTemplate;
+        this.resultType = resultType;
+        this.headers = headers;
+        this.multipart = multipart;
+        this.responseMode = responseMode;
+        this.resultAdapter = responseMode == ResponseMode.AGGREGATE ? ResultAdapter.of(resultType) : null;
+        boolean stream = responseMode == ResponseMode.NDJSON || responseMode == ResponseMode.SSE;
+        this.elementType = stream ? ((ParameterizedType) resultType).getActualTypeArguments()[0] : null;
+        this.reconnect = reconnect;
+        this.parameterAnnotations = parameterAnnotations;
+        this.bodyTypes = bodyTypes;
+        //聚合的响应在发送时按编解码器的格式协商
+        if (responseMode != ResponseMode.AGGREGATE && !headers.contains(HttpHeaderNames.ACCEPT)) {
+            headers.set(HttpHeaderNames.ACCEPT, accept(responseMode));
+        }
+    }
+
+    /**
+     * 创建注解处理器生成的方法的请求信息，注解已经在编译时检查过，URL由生成的代码拼接
+     * @param httpMethod 请求方法
+     * @param resultType 结果类型
+     * @param headers 方法及接口上的请求首部
+     * @param multipart 是否是multipart请求
+     * @param stream @Stream的格式，没有@Stream时为null
+     * @param reconnect SSE是否断线重连
+     * @param download 是否有@Download参数
+     * @param bodyTypes @RequestBody参数的类型，用于预热编解码器
+     * @return 方法的请求信息
+     */
+    static MethodSpec generated(HttpMethod httpMethod, Type resultType, HttpHeaders headers, boolean multipart,
+                                Stream.Format stream, boolean reconnect, boolean download, Type[] bodyTypes) {
+        ResponseMode responseMode;
+        if (download) {
+            responseMode = ResponseMode.DOWNLOAD;
+        } else if (stream != null) {
+            responseMode = stream == Stream.Format.SSE ? ResponseMode.SSE : ResponseMode.NDJSON;
+        } else if (resultType instanceof ParameterizedType
+                && ((ParameterizedType) resultType).getRawType() == Flow.Publisher.class) {
+            responseMode = ResponseMode.STREAM;
+        } else {
+            responseMode = ResponseMode.AGGREGATE;
+        }
+        return new MethodSpec(httpMethod, null, resultType, headers, multipart, responseMode,
+                reconnect && stream != null, null, bodyTypes);
+    }
+
+    /**
+     * 解析接口方法
+     * @param method 接口方法
+     * @param basePath baseUrl和RequestMapping组成的父路径
+     * @param multipart 是否已经通过builder开启了multipart
+     * @return 解析后的方法信息
+     * @throws NettyProxyException 方法缺少请求方法注解或返回类型不是泛型
+     */
+    static MethodSpec parse(Method method, String basePath, boolean multipart) throws NettyProxyException {
+        HttpMethod httpMethod = null;
+        String path = null;
+        HttpHeaders headers = new DefaultHttpHeaders();
+
+        //解析被调用的方法上的注解，确定请求方法
+        for (Annotation annotation : method.getAnnotations()) {
+            if (annotation instanceof Get) {
+                httpMethod = HttpMethod.GET;
+                path = ((Get) annotation).value();
+            }
+
+            if (annotation instanceof Put) {
+                httpMethod = HttpMethod.PUT;
+                path = ((Put) annotation).value();
+            }
+
+            if (annotation instanceof Post) {
+                httpMethod = HttpMethod.POST;
+                path = ((Post) annotation).value();
+                //如果已经通过builder开启，则无视post注解的multipart
+                multipart = multipart || ((Post) annotation).multipart();
+            }
+
+            if (annotation instanceof Delete) {
+                httpMethod = HttpMethod.DELETE;
+                path = ((Delete) annotation).value();
+            }
+
+            if (annotation instanceof Header) {
+                Header header = (Header) annotation;
+                headers.add(header.key(), header.val());
+            }
+        }
+
+        if (httpMethod == null) {
+            throw new NettyProxyException("Missing http method annotation on " + method);
+        }
+
+        //获取被调用方法的返回类型，这是统一的泛型，泛型的参数类型才是我们想要的结果的类型
+        Type type = method.getGenericReturnType();
+        if (!(type instanceof ParameterizedType)) {
+            throw new NettyProxyException("Return type of " + method + " must be a parameterized request");
+        }
+        Type resultType = ((ParameterizedType) type).getActualTypeArguments()[0];
+
+        Annotation[][] annotations = method.getParameterAnnotations();
+        Annotation[] parameterAnnotations = new Annotation[annotations.length];
+        for (int i = 0; i < annotations.length; i++) {
+            //HTTP请求相关的参数只能有一个注解
+            parameterAnnotations[i] = annotations[i].length == 0 ? null : annotations[i][0];
+        }
+
+        String fullPath = UrlTemplate.join(basePath, path);
+        UrlTemplate urlTemplate = UrlTemplate.compile(fullPath, annotations);
+        Type[] bodyTypes = checkParameters(method, fullPath, multipart, parameterAnnotations);
+        Stream stream = method.getAnnotation(Stream.class);
+        ResponseMode responseMode = parseResponseMode(method, resultType, stream, parameterAnnotations);
+        MethodSpec spec = new MethodSpec(httpMethod, urlTemplate, resultType, headers, multipart, responseMode,
+                stream != null && stream.reconnect(), parameterAnnotations, bodyTypes);
+        RateLimit rateLimit = method.getAnnotation(RateLimit.class);
+        if (rateLimit != null) {
+            try {
+                spec.rateLimiter(RateLimiter.of(rateLimit));
+            } catch (IllegalArgumentException e) {
+                throw new NettyProxyException(e.getMessage() + " on " + method);
+            }
+        }
+        return spec;
+    }
+
+    /**
+     * 检查参数的注解和类型，使错误在bind时就暴露出来，而不是在第一次请求时
+     * @return @RequestBody参数的类型
+     * @throws NettyProxyException 参数的类型与注解不符
+     */
+    private static Type[] checkParameters(Method method, String path, boolean multipart,
+                                          Annotation[] parameterAnnotations) throws NettyProxyException {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Type[] genericTypes = method.getGenericParameterTypes();
+        List<Type> bodyTypes = new ArrayList<>();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            Annotation annotation = parameterAnnotations[i];
+            if (annotation instanceof Upload && parameterTypes[i] != File.class) {
+                throw new NettyProxyException("@Upload requires a File parameter on " + method);
+            }
+            if (annotation instanceof Uploads && parameterTypes[i] != File[].class) {
+                throw new NettyProxyException("@Uploads requires a File[] parameter on " + method);
+            }
+            if ((annotation instanceof Upload || annotation instanceof Uploads) && !multipart) {
+                throw new NettyProxyException("Uploading files requires @Post(multipart = true) on " + method);
+            }
+            if (annotation instanceof PathVariable
+                    && !path.contains("{" + ((PathVariable) annotation).value() + "}")) {
+                throw new NettyProxyException("@PathVariable(\"" + ((PathVariable) annotation).value()
+                        + "\") is not used in \"" + path + "\" on " + method);
+            }
+            if (annotation instanceof RequestBody) {
+                bodyTypes.add(genericTypes[i]);
+            }
+        }
+        if (!multipart && bodyTypes.size() > 1) {
+            throw new NettyProxyException("Only one @RequestBody is allowed without multipart on " + method);
+        }
+        return bodyTypes.toArray(new Type[0]);
+    }
+
+    /**
+     * 根据结果类型和参数确定响应的处理方式
+     * @throws NettyProxyException 流式结果类型或下载参数不合法
+     */
+    private static ResponseMode parseResponseMode(Method method, Type resultType, Stream stream,
+                                                  Annotation[] parameterAnnotations) throws NettyProxyException {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            if (parameterAnnotations[i] instanceof Download) {
+                Class<?> type = parameterTypes[i];
+                if ((type != Path.class && type != File.class) || !type.equals(resultType)) {
+                    throw new NettyProxyException("@Download requires a Path or File parameter of the result type on " + method);
+                }
+                return ResponseMode.DOWNLOAD;
+            }
+        }
+
+        boolean publisher = resultType instanceof ParameterizedType
+                && ((ParameterizedType) resultType).getRawType() == Flow.Publisher.class;
+        if (stream != null) {
+            if (!publisher) {
+                throw new NettyProxyException("@Stream requires a Flow.Publisher result type on " + method);
+            }
+            return stream.value() == Stream.Format.SSE ? ResponseMode.SSE : ResponseMode.NDJSON;
+        }
+        if (publisher) {
+            Type elementType = ((ParameterizedType) resultType).getActualTypeArguments()[0];
+            if (elementType != ByteBuf.class) {
+                throw new NettyProxyException("Flow.Publisher of decoded records requires @Stream on " + method);
+            }
+            return ResponseMode.STREAM;
+        }
+        return ResponseMode.AGGREGATE;
+    }
+
+    /**
+     * @return 根据响应的处理方式确定的Accept首部
+     */
+    private static String accept(ResponseMode responseMode) {
+        switch (responseMode) {
+            case SSE:
+                return "text/event-stream";
+            case NDJSON:
+                return "application/x-ndjson";
+            default:
+                return "*/*";
+        }
+    }
+
+    HttpMethod httpMethod() {
+        return httpMethod;
+    }
+
+    UrlTemplate urlTemplate() {
+        return urlTemplate;
+    }
+
+    Type resultType() {
+        return resultType;
+    }
+
+    HttpHeaders headers() {
+        return headers;
+    }
+
+    boolean multipart() {
+        return multipart;
+    }
+
+    ResponseMode responseMode() {
+        return responseMode;
+    }
+
+    ResultAdapter resultAdapter() {
+        return resultAdapter;
+    }
+
+    Type elementType() {
+        return elementType;
+    }
+
+    boolean reconnect() {
+        return reconnect;
+    }
+
+    RateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * 设置方法的限流，只在创建请求信息时调用
+     */
+    void rateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * @return 需要编解码器处理的类型，用于预热
+     */
+    List<Type> codecTypes() {
+        List<Type> codecTypes = new ArrayList<>();
+        if (resultAdapter != null) {
+            if (resultAdapter.codecType() != null) {
+                codecTypes.add(resultAdapter.codecType());
+            }
+        } else if (elementType != null && elementType != ServerSentEvent.class) {
+            codecTypes.add(elementType);
+        }
+        for (Type bodyType : bodyTypes) {
+            codecTypes.add(bodyType);
+        }
+        return codecTypes;
+    }
+
+    Annotation[] parameterAnnotations() {
+        return parameterAnnotations;
+    }
+}
@@ -0,0 +1,211 @@
+package proxy;
+
+import codec.Codec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * multipart/form-data请求体的编码器，由pipeline中的ChunkedWriteHandler按需读取写出
+ * 每个请求使用随机的boundary；对象部分在创建时直接编码到池化的缓冲区，文件只在写出时分块读取，
+ * 因此创建时就能算出Content-Length，整个请求体不需要完整地放在内存中
+ */
+final class MultipartEncoder implements ChunkedInput<HttpContent> {
+    //读取文件时每块的大小
+    private static final int FILE_CHUNK_SIZE = 8192;
+
+    private final String boundary;
+    private final ByteBufAllocator allocator;
+
+    //等待写出的片段，ByteBuf或File
+    private final Deque<Object> segments = new ArrayDeque<>();
+
+    private final long length;
+    private long progress = 0;
+
+    //正在写出的文件
+    private FileChannel fileChannel;
+    private long fileRemaining;
+
+    /**
+     * 编码所有对象部分并计算请求体的长度，失败时释放已经分配的缓冲区
+     * @param codec 对象部分的编解码器
+     * @param allocator 分配首部及对象部分的缓冲区
+     * @param files 需要上传的文件
+     * @param bodies 需要编码的对象
+     */
+    MultipartEncoder(Codec codec, ByteBufAllocator allocator,
+                     List<NettyRequest.MultipartFile> files, List<NettyRequest.MultipartBody> bodies) {
+        this.allocator = allocator;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boundary = "NettyHttpClient" + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+
+        long length = 0;
+        try {
+            for (NettyRequest.MultipartFile file : files) {
+                ByteBuf head = head(file.getName(), file.getFile().getName(), file.getType());
+                segments.add(head);
+                segments.add(file.getFile());
+                length += head.readableBytes() + file.getFile().length();
+            }
+            for (NettyRequest.MultipartBody body : bodies) {
+                //对象直接编码在部分首部之后，作为一个片段写出
+                ByteBuf part = head(body.getName(), null, codec.contentType());
+                segments.add(part);
+                codec.encode(body.getValue(), part);
+                length += part.readableBytes();
+            }
+            ByteBuf end = allocator.buffer();
+            segments.add(end);
+            ByteBufUtil.writeAscii(end, (segments.size() > 1 ? "\r\n--" : "--") + boundary + "--\r\n");
+            length += end.readableBytes();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        this.length = length;
+    }
+
+    /**
+     * @return 请求首部Content-Type的值
+     */
+    String contentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    /**
+     * 编码一个部分的分隔符和首部，除第一个部分外，前面的CRLF属于上一个部分的结尾
+     * @param name 参数名
+     * @param filename 文件名，对象部分为null
+     * @param contentType 这一部分的类型
+     * @return 池化的缓冲区
+     */
+    private ByteBuf head(String name, String filename, String contentType) {
+        StringBuilder head = new StringBuilder(128);
+        if (!segments.isEmpty()) {
+            head.append("\r\n");
+        }
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(quote(name)).append('"');
+        if (filename != null) {
+            head.append("; filename=\"").append(quote(filename)).append('"');
+        }
+        head.append("\r\nContent-Type: ").append(contentType).append("\r\n\r\n");
+
+        ByteBuf buf = allocator.buffer(ByteBufUtil.utf8MaxBytes(head));
+        ByteBufUtil.writeUtf8(buf, head);
+        return buf;
+    }
+
+    /**
+     * 按HTML的规则转义参数名和文件名中的引号及换行
+     */
+    private static String quote(String value) {
+        return value.replace("\"", "%22").replace("\r", "%0D").replace("\n", "%0A");
+    }
+
+    @Override
+    public boolean isEndOfInput() {
+        return segments.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        closeFile();
+        for (Object segment : segments) {
+            ReferenceCountUtil.release(segment);
+        }
+        segments.clear();
+    }
+
+    @Deprecated
+    @Override
+    public HttpContent readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public HttpContent readChunk(ByteBufAllocator allocator) throws Exception {
+        Object segment = segments.peek();
+        if (segment == null) {
+            return null;
+        }
+
+        ByteBuf chunk;
+        if (segment instanceof ByteBuf) {
+            //所有权交给写出的HttpContent
+            segments.poll();
+            chunk = (ByteBuf) segment;
+        } else {
+            chunk = readFile((File) segment, allocator);
+        }
+        progress += chunk.readableBytes();
+        return segments.isEmpty() ? new DefaultLastHttpContent(chunk) : new DefaultHttpContent(chunk);
+    }
+
+    /**
+     * 读取文件的下一块，文件读完后移到下一个片段
+     */
+    private ByteBuf readFile(File file, ByteBufAllocator allocator) throws IOException {
+        if (fileChannel == null) {
+            fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            fileRemaining = file.length();
+        }
+
+        int size = (int) Math.min(FILE_CHUNK_SIZE, fileRemaining);
+        ByteBuf chunk = allocator.buffer(size);
+        try {
+            while (chunk.writerIndex() < size) {
+                if (chunk.writeBytes(fileChannel, size - chunk.writerIndex()) < 0) {
+                    //Content-Length已经发送，文件变短时只能中止请求
+                    throw new IOException("File " + file + " was truncated while uploading");
+                }
+            }
+        } catch (IOException e) {
+            chunk.release();
+            throw e;
+        }
+
+        fileRemaining -= size;
+        if (fileRemaining == 0) {
+            closeFile();
+            segments.poll();
+        }
+        return chunk;
+    }
+
+    private void closeFile() {
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException ignored) {
+            }
+            fileChannel = null;
+        }
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public long progress() {
+        return progress;
+    }
+}
@@ -2,31 +2,86 @@ package proxy;
 
 import annotation.header.Header;
 import annotation.mapping.RequestMapping;
-import annotation.method.*;
+import annotation.method.RateLimit;
 import annotation.param.*;
+import codec.Codec;
 import codec.GsonCodec;
 import codec.JsonCodec;
 import exceptions.NettyProxyException;
 import exceptions.ParamException;
+import handler.ServerSentEvent;
+import interceptor.Interceptor;
+import trace.SpanSink;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
 import io.netty.handler.codec.http.*;
 
 import java.io.File;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * netty生成http请求的代理类，实现了Java代理接口、自定义的builder接口
  * 通过builder模式构建NettyProxy对象
  */
-public class NettyProxy implements InvocationHandler, RequestBuilder {
+public class NettyProxy implements InvocationHandler, RequestBuilder, AutoCloseable {
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    //SSE断线后默认等待多久重连
+    private static final long DEFAULT_RETRY_MILLIS = 3000;
+
+    //bind时预热最多等待的秒数
+    private static final long WARM_UP_TIMEOUT_SECONDS = 10;
+
+    //代理的限流在DELAY模式下最多等待的毫秒数，与@RateLimit的默认值相同
+    private static final long RATE_LIMIT_MAX_DELAY_MILLIS = 10000;
+
     private String baseUrl = "";
     private final HttpHeaders headers = new DefaultHttpHeaders();
-    private JsonCodec codec = new GsonCodec();
-    private NettyRequest<?> nettyRequest;
-    private final ThreadLocal<String> requestUrl = new InheritableThreadLocal<>();
+    private Codec codec = new GsonCodec();
+    private Executor callbackExecutor;
     private boolean isMultipart = false;
     private boolean isBound = false;
+
+    //预热时预先建立的连接数，小于0表示不预热，及预热的结果
+    private int warmUpConnections = -1;
+    private CompletableFuture<Void> warmedUp = CompletableFuture.completedFuture(null);
+
+    //请求体及连接使用的分配器，为null时使用资源的分配器，及所有连接共享的自适应读缓冲区
+    private ByteBufAllocator allocator;
+    private RecvByteBufAllocator receiveAllocator;
+
+    private int maxResponseSize = NettyRequest.DEFAULT_MAX_RESPONSE_SIZE;
+    private long streamingThreshold = NettyRequest.DEFAULT_STREAMING_THRESHOLD;
+    private boolean decompress = false;
+
+    //按注册顺序执行的拦截器，没有注册时为null
+    private InterceptorChain interceptors;
+
+    //导出span的sink，为null时不追踪
+    private SpanSink spanSink;
+
+    //multipart请求体达到该长度时使用Expect: 100-continue，小于0时不使用
+    private long expectContinueThreshold = -1;
+    private long expectContinueTimeoutMillis;
+
+    //代理的所有请求共享的限流，一个代理只对应一个目标地址，即按目标地址限流
+    private RateLimiter rateLimiter;
+
+    //发送请求使用的event loop，及是否由代理创建、随代理关闭
+    private ClientResources resources = ClientResources.shared();
+    private boolean ownsResources = false;
+
+    //代理上进行中的请求，关闭代理时等待它们完成
+    private final RequestTracker tracker = new RequestTracker();
+    private CompletableFuture<Void> terminated;
+
+    //bind时解析的请求目标地址及每个接口方法的请求信息，bind之后只读
+    private Endpoint endpoint;
+    private final Map<Method, MethodSpec> methodSpecs = new HashMap<>();
+
     public NettyProxy() {
 
     }
@@ -41,30 +96,24 @@ public class NettyProxy implements InvocationHandler, RequestBuilder {
      */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) {
-        requestUrl.set(baseUrl);
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, method, args);
+        }
 
-        nettyRequest = new NettyRequest<>();
-        nettyRequest.codec(codec)
-                .headers(headers)
-                .header((HttpHeaderNames.ACCEPT).toString(), "application/json")
-                .multipart(isMultipart);
-
-        //获取被调用方法的返回类型，这是统一的泛型，泛型的参数类型才是我们想要的结果的类型
-        Type type = method.getGenericReturnType();
-        //获取泛型返回类型的实际参数类型
-        Type resultType = ((ParameterizedType)type).getActualTypeArguments()[0];
-        //设置实际结果的返回类型
-        nettyRequest.resultType(resultType);
-
-        //解析被调用的方法上的注解，确定请求方法
-        for (Annotation annotation : method.getAnnotations()) {
-            parseHttpMethod(annotation);
+        MethodSpec spec = methodSpecs.get(method);
+        if (args == null) {
+            args = EMPTY_ARGS;
         }
 
+        NettyRequest<?> nettyRequest = newRequest(spec);
+
         //设置HTTP请求相关的参数
         try {
-            parseArgs(method, args);
+            parseArgs(spec, nettyRequest, args);
+            //添加路径变量、请求参数后的完整的HTTP请求的URI
+            nettyRequest.uri(spec.urlTemplate().expand(args));
         } catch (Exception e) {
+            nettyRequest.discard();
             e.printStackTrace();
             return null;
         }
@@ -73,134 +122,158 @@ public class NettyProxy implements InvocationHandler, RequestBuilder {
     }
 
     /**
-     * 解析请求方法
-     * @param annotation 接口方法上的注解
+     * 根据方法的请求信息创建请求，路径和参数由调用者设置
+     * @param spec 接口方法的请求信息
+     * @return 新的请求
      */
-    private void parseHttpMethod(Annotation annotation) {
-        String url = requestUrl.get();
-        if(annotation instanceof Get) {
-            nettyRequest.httpMethod(HttpMethod.GET);
-            url = url + ((Get)annotation).value();
-        }
-
-        if(annotation instanceof Put) {
-            nettyRequest.httpMethod(HttpMethod.PUT);
-            url = url + ((Put)annotation).value();
-        }
-
-        if(annotation instanceof Post) {
-            nettyRequest.httpMethod(HttpMethod.POST);
-            url = url + ((Post)annotation).value();
-            //判断该post方法需要发送的是不是multipart，如果已经通过builder开启，则无视post注解的multipart
-            if(!isMultipart) {
-                multipart(((Post) annotation).multipart());
-            }
-        }
-
-        if(annotation instanceof Delete) {
-            nettyRequest.httpMethod(HttpMethod.DELETE);
-            url = url + ((Delete)annotation).value();
-        }
+    NettyRequest<?> newRequest(MethodSpec spec) {
+        NettyRequest<?> nettyRequest = new NettyRequest<>();
+        nettyRequest.codec(codec)
+                .resources(resources, tracker)
+                .allocator(allocator == null ? resources.allocator() : allocator)
+                .receiveAllocator(receiveAllocator)
+                .maxResponseSize(maxResponseSize)
+                .streamingThreshold(streamingThreshold)
+                .decompress(decompress)
+                .interceptors(interceptors)
+                .rateLimit(rateLimiter, spec.rateLimiter())
+                .expectContinue(expectContinueThreshold, expectContinueTimeoutMillis)
+                .tracing(spanSink)
+                .callbackExecutor(callbackExecutor)
+                .headers(headers)
+                .headers(spec.headers())
+                .multipart(spec.multipart())
+                .httpMethod(spec.httpMethod())
+                .resultType(spec.resultType(), spec.resultAdapter())
+                .responseMode(spec.responseMode())
+                .stream(spec.elementType(), spec.reconnect(), DEFAULT_RETRY_MILLIS)
+                .endpoint(endpoint);
+        return nettyRequest;
+    }
 
-        if(annotation instanceof Header) {
-            Header header = (Header) annotation;
-            this.header(header.key(), header.val());
+    /**
+     * 代理对象上Object的方法，不需要发送请求
+     */
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "NettyProxy(" + endpoint + ")";
         }
-
-        requestUrl.set(url);
     }
 
     /**
-     * 解析HTTP请求参数
-     * @param method 被调用的接口方法
+     * 解析HTTP请求参数，路径变量和请求参数已经由UrlTemplate处理
+     * @param spec 被调用的接口方法的请求信息
+     * @param nettyRequest 正在构建的请求
      * @param args 参数
      * @throws ParamException 解析过程中出现的参数异常
      */
-    private void parseArgs(Method method, Object[] args) throws ParamException{
-        Annotation[][] annotations = method.getParameterAnnotations();
-        StringBuilder url = new StringBuilder(requestUrl.get());
+    private void parseArgs(MethodSpec spec, NettyRequest<?> nettyRequest, Object[] args) throws ParamException{
+        Annotation[] annotations = spec.parameterAnnotations();
         for(int i = 0 ; i < args.length; i++) {
-            if(annotations[i].length == 0) {
+            Annotation annotation = annotations[i];
+            if(annotation == null) {
                 continue;
             }
 
-            //HTTP请求相关的参数只能有一个注解
-            Annotation annotation = annotations[i][0];
-
             //请求参数序列化作为请求体
             if(annotation instanceof RequestBody) {
-                String json = codec.encode(args[i]);
-                if(isMultipart) {
-                    String name = ((RequestBody)annotation).value();
-                    nettyRequest.addMultipart(name, json);
-                } else {
-                    //System.out.println("json : "+json);
-                    nettyRequest.content(json);
-                }
-            }
-
-            //路径参数
-            if(annotation instanceof PathVariable) {
-                String var = ((PathVariable)annotation).value();
-                url = new StringBuilder(url.toString().replace("{" + var + "}", ((String) args[i])));
+                body(spec, nettyRequest, ((RequestBody)annotation).value(), args[i]);
             }
 
-            //请求参数
-            if(annotation instanceof RequestParam) {
-                String var = ((RequestParam)annotation).value();
-                url.append(var).append("=").append(args[i].toString()).append("&");
+            //把响应体下载到文件
+            if(annotation instanceof Download) {
+                download(nettyRequest, args[i]);
             }
 
             //上传一个文件
             if(annotation instanceof Upload) {
-                if(!(args[i] instanceof File)) {
-                    throw  new ParamException("The parameter is not a \"File\"");
-                }
-                String name = ((Upload)annotation).value();
-                try {
-                    File file = (File) args[i];
-                    nettyRequest.addMultipart(name, file);
-                } catch (ClassCastException e) {
-                    throw new ParamException("The parameter is not \"File\" class.");
-                }
+                upload(nettyRequest, ((Upload)annotation).value(), args[i]);
             }
 
             //上传一个或多个文件
             if(annotation instanceof Uploads) {
-                if(!(args[i] instanceof File[])) {
-                    throw  new ParamException("The parameter is not a \"File\" array");
-                }
-                String[] name = ((Uploads)annotation).value();
-                File[] files = (File[]) args[i];
-                //直接上传，参数名为空
-                if (name.length == 0) {
-                    for (File file : files) {
-                        nettyRequest.addMultipart(file);
-                    }
-                } else {
-                    if(name.length < files.length) {
-                        throw new ParamException("missing request parameters");
-                    }
-                    for (int j = 0; j < name.length; j++) {
-                        nettyRequest.addMultipart(name[i], files[i]);
-                    }
-                }
+                uploads(nettyRequest, ((Uploads)annotation).value(), args[i]);
             }
         }
+    }
 
-        //修饰添加请求参数后的URL字符串
-        if (url.lastIndexOf("&") == url.length()-1) {
-            url = new StringBuilder(url.substring(0, url.length() - 2));
+    /**
+     * 请求参数序列化作为请求体，multipart请求中作为其中一部分
+     * @param spec 接口方法的请求信息
+     * @param nettyRequest 正在构建的请求
+     * @param name multipart中的参数名
+     * @param value 需要序列化的对象
+     */
+    void body(MethodSpec spec, NettyRequest<?> nettyRequest, String name, Object value) {
+        if(spec.multipart()) {
+            nettyRequest.addMultipart(name, value);
+        } else {
+            nettyRequest.body(value);
         }
+    }
 
-        //System.out.println("full url : "+fullUrl);
+    /**
+     * 把响应体下载到文件
+     * @param nettyRequest 正在构建的请求
+     * @param target Path或File
+     * @throws ParamException 目标文件为null
+     */
+    void download(NettyRequest<?> nettyRequest, Object target) throws ParamException {
+        if(target == null) {
+            throw new ParamException("The download target can not be null");
+        }
+        nettyRequest.download(target);
+    }
 
-        //添加路径变量、请求参数后的完整的HTTP请求的URL字符串
-        nettyRequest.url(url.toString());
+    /**
+     * 上传一个文件
+     * @param nettyRequest 正在构建的请求
+     * @param name 参数名
+     * @param file 需要上传的文件
+     * @throws ParamException 参数不是文件
+     */
+    void upload(NettyRequest<?> nettyRequest, String name, Object file) throws ParamException {
+        if(!(file instanceof File)) {
+            throw  new ParamException("The parameter is not a \"File\"");
+        }
+        nettyRequest.addMultipart(name, (File) file);
+    }
+
+    /**
+     * 上传一个或多个文件
+     * @param nettyRequest 正在构建的请求
+     * @param name 参数名，为空时直接上传
+     * @param value 需要上传的文件数组
+     * @throws ParamException 参数不是文件数组或参数名不足
+     */
+    void uploads(NettyRequest<?> nettyRequest, String[] name, Object value) throws ParamException {
+        if(!(value instanceof File[])) {
+            throw  new ParamException("The parameter is not a \"File\" array");
+        }
+        File[] files = (File[]) value;
+        //直接上传，参数名为空
+        if (name.length == 0) {
+            for (File file : files) {
+                nettyRequest.addMultipart(file);
+            }
+        } else {
+            if(name.length < files.length) {
+                throw new ParamException("missing request parameters");
+            }
+            for (int j = 0; j < files.length; j++) {
+                nettyRequest.addMultipart(name[j], files[j]);
+            }
+        }
     }
 
     /**
      * 实例化一个HTTP请求的接口类，一个Proxy只能实例化一个接口类
+     * 如果编译时注解处理器已经生成了接口的实现类，则直接使用生成的类，否则使用Java动态代理
      * @param type 需要实例化的接口的类型
      * @return 经处理后的代理类型，代理类型是动态生成的，JVM也不知道其实际类型，不能够进行序列化
      */
@@ -209,23 +282,137 @@ public class NettyProxy implements InvocationHandler, RequestBuilder {
         if(isBound) {
             throw new NettyProxyException("This NettyProxy has been bound");
         } else {
+            this.endpoint = Endpoint.parse(baseUrl);
+
+            //优先使用注解处理器生成的实现类，没有反射和动态代理的开销
+            GeneratedClient client = new GeneratedClient(this, Endpoint.stripOrigin(baseUrl), isMultipart);
+            Object generated = bindGenerated(type, client);
+            if (generated != null) {
+                for (MethodSpec spec : client.methods()) {
+                    checkCodec(type.getName(), spec);
+                }
+                warmUp(client.methods());
+                this.isBound = true;
+                return generated;
+            }
+
             //bind的时候，同时解析接口类的注解，避免每次都解析，以减少性能开心
-            parseClassAnnotation(type);
+            //所有方法的注解错误一次性报告
+            String basePath = parseClassAnnotation(type);
+            StringBuilder errors = new StringBuilder();
+            for (Method method : type.getMethods()) {
+                if (!method.isDefault() && !Modifier.isStatic(method.getModifiers())) {
+                    try {
+                        MethodSpec spec = MethodSpec.parse(method, basePath, isMultipart);
+                        checkCodec(method.toString(), spec);
+                        methodSpecs.put(method, spec);
+                    } catch (NettyProxyException e) {
+                        errors.append("\n").append(e.getMessage());
+                    }
+                }
+            }
+            if (errors.length() > 0) {
+                throw new NettyProxyException("Invalid interface " + type.getName() + " :" + errors);
+            }
+            warmUp(methodSpecs.values());
             this.isBound = true;
             //使用Proxy类来创建对象，能够拦截对象的方法调用
-            return Proxy.newProxyInstance(NettyProxy.class.getClassLoader(), new Class[]{type}, this);
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, this);
         }
 
     }
 
+    /**
+     * 实例化注解处理器生成的实现类
+     * @param type 需要实例化的接口的类型
+     * @return 生成的实现类的实例，没有生成时返回null
+     */
+    private Object bindGenerated(Class<?> type, GeneratedClient client) {
+        Class<?> implementation;
+        try {
+            implementation = Class.forName(GeneratedClient.implementationName(type.getName()), true, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            return implementation.getConstructor(GeneratedClient.class).newInstance(client);
+        } catch (ReflectiveOperationException e) {
+            throw new NettyProxyException("Can not instantiate " + implementation.getName() + " : " + e);
+        }
+    }
+
+    /**
+     * 按行解码的流只能使用文本格式的编解码器
+     * @param where 用于错误信息的接口方法或接口
+     * @param spec 接口方法的请求信息
+     * @throws NettyProxyException 编解码器不是JsonCodec
+     */
+    private void checkCodec(String where, MethodSpec spec) throws NettyProxyException {
+        boolean decodesLines = spec.responseMode() == ResponseMode.NDJSON
+                || (spec.responseMode() == ResponseMode.SSE && spec.elementType() != ServerSentEvent.class);
+        if (decodesLines && !(codec instanceof JsonCodec)) {
+            throw new NettyProxyException("@Stream requires a JsonCodec to decode records on " + where);
+        }
+    }
+
+    /**
+     * 开启预热时，并行地为所有结果类型和请求体类型构建编解码器，并预先建立连接
+     * 连接失败及超时不影响bind，结果由warmedUp报告
+     * @param specs 所有方法的请求信息
+     * @throws NettyProxyException 编解码器不支持某个类型
+     */
+    private void warmUp(Collection<MethodSpec> specs) throws NettyProxyException {
+        if (warmUpConnections < 0) {
+            return;
+        }
+        Set<Type> codecTypes = new HashSet<>();
+        for (MethodSpec spec : specs) {
+            codecTypes.addAll(spec.codecTypes());
+        }
+
+        List<CompletableFuture<Void>> codecTasks = new ArrayList<>();
+        for (Type codecType : codecTypes) {
+            codecTasks.add(CompletableFuture.runAsync(() -> codec.prepare(codecType)));
+        }
+        List<CompletableFuture<Void>> connectTasks = new ArrayList<>();
+        for (int i = 0; i < warmUpConnections; i++) {
+            connectTasks.add(NettyRequest.preconnect(endpoint, resources));
+        }
+        CompletableFuture<Void> codecs = CompletableFuture.allOf(codecTasks.toArray(new CompletableFuture[0]));
+        CompletableFuture<Void> connections = CompletableFuture.allOf(connectTasks.toArray(new CompletableFuture[0]));
+        this.warmedUp = CompletableFuture.allOf(codecs, connections);
+
+        try {
+            CompletableFuture.allOf(codecs, connections.exceptionally(e -> null))
+                    .get(WARM_UP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new NettyProxyException("Warm up failed : " + e.getCause());
+        } catch (TimeoutException e) {
+            //没有完成的预热在后台继续，不再阻塞bind
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 预热的结果，可以在bind之后检查预先建立的连接是否成功
+     * @return 预热都完成后完成，连接失败时以第一个失败的原因异常完成；没有开启预热时已经完成
+     */
+    public CompletableFuture<Void> warmedUp() {
+        return warmedUp;
+    }
+
     /**
      * 解析接口类上的注解
      * @param type 需要被代理的接口类
+     * @return baseUrl的路径部分和RequestMapping组成的父路径
      */
-    private void parseClassAnnotation(Class<?> type) {
-        //解析接口类上的请求路径注解，并添加到baseUrl中
+    private String parseClassAnnotation(Class<?> type) {
+        String basePath = Endpoint.stripOrigin(baseUrl);
+
+        //解析接口类上的请求路径注解，并添加到父路径中
         if (type.isAnnotationPresent(RequestMapping.class)) {
-            this.baseUrl = this.baseUrl + type.getAnnotation(RequestMapping.class).value();
+            basePath = UrlTemplate.join(basePath, type.getAnnotation(RequestMapping.class).value());
         }
 
         //解析接口类上的请求头部注解，并添加到headers中
@@ -236,6 +423,31 @@ public class NettyProxy implements InvocationHandler, RequestBuilder {
                 this.header(header.key(), header.val());
             }
         }
+        return basePath;
+    }
+
+    /**
+     * 优雅地关闭代理：立即拒绝新的请求，等待代理上进行中的请求完成，超时后取消剩下的请求
+     * 代理通过eventLoopThreads创建的资源随之关闭，共享的资源不受影响
+     * @param timeout 最多等待进行中的请求的时间
+     * @param unit 时间单位
+     * @return 请求都结束且自己的资源关闭后完成，重复调用返回同一个future
+     */
+    public synchronized CompletableFuture<Void> shutdownGracefully(long timeout, TimeUnit unit) {
+        if (terminated == null) {
+            terminated = tracker.close(timeout, unit).thenCompose(v -> ownsResources
+                    ? resources.shutdownGracefully(0, TimeUnit.MILLISECONDS)
+                    : CompletableFuture.completedFuture(null));
+        }
+        return terminated;
+    }
+
+    /**
+     * 以默认的10秒超时关闭代理，并等待关闭完成
+     */
+    @Override
+    public void close() {
+        shutdownGracefully(ClientResources.DEFAULT_SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).join();
     }
 
     @Override
@@ -246,7 +458,7 @@ public class NettyProxy implements InvocationHandler, RequestBuilder {
     }
 
     @Override
-    public RequestBuilder codec(JsonCodec codec) {
+    public RequestBuilder codec(Codec codec) {
         this.codec = codec;
         return this;
     }
@@ -270,4 +482,90 @@ public class NettyProxy implements InvocationHandler, RequestBuilder {
         this.isMultipart = isMultipart;
         return this;
     }
+
+    @Override
+    public RequestBuilder callbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+        return this;
+    }
+
+    @Override
+    public RequestBuilder warmUp(int connections) {
+        this.warmUpConnections = connections;
+        return this;
+    }
+
+    @Override
+    public RequestBuilder allocator(ByteBufAllocator allocator) {
+        this.allocator = allocator;
+        return this;
+    }
+
+    @Override
+    public RequestBuilder adaptiveReceiveBuffer(int minimum, int initial, int maximum) {
+        //一个代理只对应一个目标地址，所有请求共享学到的大小
+        this.receiveAllocator = new EndpointRecvByteBufAllocator(minimum, initial, maximum);
+        return this;
+    }
+
+    @Override
+    public RequestBuilder maxResponseSize(int bytes) {
+        this.maxResponseSize = bytes;
+        return this;
+    }
+
+    @Override
+    public RequestBuilder streamingBodyThreshold(long bytes) {
+        this.streamingThreshold = bytes;
+        return this;
+    }
+
+    @Override
+    public RequestBuilder decompress(boolean decompress) {
+        this.decompress = decompress;
+        return this;
+    }
+
+    @Override
+    public RequestBuilder tracing(SpanSink sink) {
+        this.spanSink = sink;
+        return this;
+    }
+
+    @Override
+    public RequestBuilder interceptor(Interceptor interceptor) {
+        this.interceptors = InterceptorChain.append(interceptors, interceptor);
+        return this;
+    }
+
+    @Override
+    public RequestBuilder rateLimit(double permitsPerSecond, int burst, RateLimit.Mode mode) {
+        this.rateLimiter = new RateLimiter(permitsPerSecond, burst, mode, RATE_LIMIT_MAX_DELAY_MILLIS);
+        return this;
+    }
+
+    @Override
+    public RequestBuilder clientResources(ClientResources resources) {
+        if (ownsResources) {
+            this.resources.shutdownGracefully(0, TimeUnit.MILLISECONDS);
+        }
+        this.resources = resources;
+        this.ownsResources = false;
+        return this;
+    }
+
+    @Override
+    public RequestBuilder eventLoopThreads(int threads) {
+        ClientResources owned = ClientResources.create(threads);
+        clientResources(owned);
+        this.ownsResources = true;
+        return this;
+    }
+
+    @Override
+    public RequestBuilder expectContinue(long thresholdBytes, long timeoutMillis) {
+        this.expectContinueThreshold = thresholdBytes;
+        this.expectContinueTimeoutMillis = timeoutMillis;
+        return this;
+    }
 }
@@ -1,174 +1,573 @@
 package proxy;
 
+import callback.CallbackExecutors;
 import callback.HttpCallback;
+import codec.Codec;
 import codec.GsonCodec;
 import codec.JsonCodec;
-import handler.ResponseHandler;
+import exceptions.ClientShutdownException;
+import exceptions.HttpRequestException;
+import exceptions.RateLimitException;
+import handler.*;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.ReferenceCountUtil;
 import lombok.AllArgsConstructor;
+import trace.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.lang.reflect.Type;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.nio.channels.FileChannel;
-import java.nio.charset.StandardCharsets;
+import java.net.URLConnection;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.BaseStream;
 
 public class NettyRequest<T> implements Request<T> {
-    private static final String multipartBoundary = "NettyHttpClientBoundary12345678910";
-    private static final EventLoopGroup loopGroup = new NioEventLoopGroup();
+    //流式响应中一行的最大长度
+    private static final int MAX_LINE_LENGTH = 8 * 1024 * 1024;
 
-    private ChannelPipeline pipeline;
-    private URL url;
+    //聚合的响应默认的最大长度
+    static final int DEFAULT_MAX_RESPONSE_SIZE = 2 * 1024 * 1024;
+
+    //Collection请求体估计的长度达到该字节数时分块流式发送
+    static final long DEFAULT_STREAMING_THRESHOLD = 1024 * 1024;
+
+    private Endpoint endpoint;
+    //经过编码的路径及查询参数，直接作为HTTP请求行的URI
+    private String uri;
     private HttpMethod httpMethod;
     private final HttpHeaders headers = new DefaultHttpHeaders();
-    private ChannelInitializer<SocketChannel> initializer;
-    private final ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer();
+    private ChannelInitializer<Channel> initializer;
+    //请求体，只有在确实存在请求体时才分配；buildRequest之后其所有权转移给FullHttpRequest
+    private ByteBuf content;
     private HttpCallback<T> httpCallback;
 
-    //即泛型参数T的实际类型
+    //以chunked编码边编码边发送的JSON数组请求体（Collection、Iterator或Stream），及Collection分块发送的阈值
+    private Object streamingBody;
+    private long streamingThreshold = DEFAULT_STREAMING_THRESHOLD;
+
+    //即泛型参数T的实际类型，及聚合的响应按该类型转换的方式
     private Type resultType;
+    private ResultAdapter resultAdapter;
+
+    private Codec codec = new GsonCodec();
+
+    //请求体及连接使用的分配器，读缓冲区的分配器为null时使用netty默认的
+    private ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private RecvByteBufAllocator receiveAllocator;
+
+    //聚合的响应的最大长度，及是否解压gzip/deflate编码的响应
+    private int maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+    private boolean decompress = false;
+
+    //multipart请求体达到该长度时带上Expect: 100-continue，小于0时不使用，及等待100 Continue的毫秒数
+    private long expectContinueThreshold = -1;
+    private long expectContinueTimeoutMillis;
+
+    //控制multipart请求体的写出，只有multipart请求才有
+    private UploadHandler uploadHandler;
+
+    //拦截器链，没有注册拦截器时为null
+    private InterceptorChain interceptors;
+
+    //导出span的sink，及当前请求的span，没有开启追踪时为null
+    private SpanSink spanSink;
+    private Span span;
 
-    private JsonCodec codec = new GsonCodec();
+    //代理及方法的限流，没有限流时为null
+    private RateLimiter hostLimiter;
+    private RateLimiter methodLimiter;
+
+    //回调及取消句柄，只有通过send发送的请求才有
+    private RequestHandle<T> handle;
+
+    //发送请求使用的event loop及分配器，及代理上记录进行中的请求的tracker，直接使用NettyRequest时为null
+    private ClientResources resources = ClientResources.shared();
+    private RequestTracker tracker;
+
+    //执行回调的线程，为null时在event loop中执行
+    private Executor callbackExecutor;
     private final List<MultipartFile> multipartFiles = new ArrayList<>();
     private final List<MultipartBody> multipartBodies = new ArrayList<>();
     private boolean isMultipart = false;
 
+    //响应的处理方式，及下载模式下写入的目标文件（Path或File）
+    private ResponseMode responseMode = ResponseMode.AGGREGATE;
+    private Object downloadTarget;
+
+    //@Stream的记录类型、是否断线重连
+    private Type elementType;
+    private boolean reconnect = false;
+    private long retryMillis;
+
+    //流式响应的解码器，重连时沿用，SSE需要保留最后的事件id
+    private ContentDecoder<?> streamDecoder;
+
+    //重连时需要接替的Publisher，及需要重新发送的请求体（json字符串或需要重新编码的对象）
+    private ChannelPublisher<?> reconnectPublisher;
+    private Object replayBody;
+
     /**
      * 解析URL，发送HTTP请求
      * @param httpRequest netty的http请求类
      */
     protected void doRequest(FullHttpRequest httpRequest) {
+        doRequest(httpRequest, resources.group(endpoint.transport()));
+    }
+
+    /**
+     * 在指定的event loop上发送HTTP请求
+     * @param httpRequest netty的http请求类
+     * @param group 连接注册的event loop，重连时需要与原连接相同
+     */
+    private void doRequest(FullHttpRequest httpRequest, EventLoopGroup group) {
+        doRequest(httpRequest, null, group);
+    }
+
+    /**
+     * 在指定的event loop上发送HTTP请求
+     * @param httpRequest netty的http请求类
+     * @param body 由ChunkedWriteHandler分块写出的请求体，为null时请求是完整的FullHttpRequest
+     * @param group 连接注册的event loop，重连时需要与原连接相同
+     */
+    private void doRequest(HttpRequest httpRequest, ChunkedInput<HttpContent> body, EventLoopGroup group) {
         Bootstrap bootstrap = new Bootstrap();
-        bootstrap.group(loopGroup)
-                .channel(NioSocketChannel.class)
+        bootstrap.group(group)
+                .channel(endpoint.transport().channelClass())
                 .handler(initializer)
-                .option(ChannelOption.SO_KEEPALIVE, true);
+                .option(ChannelOption.ALLOCATOR, allocator)
+                //流式响应由订阅者的请求驱动读取
+                .option(ChannelOption.AUTO_READ, responseMode == ResponseMode.AGGREGATE);
+        if (endpoint.transport() == Transport.TCP) {
+            bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+        }
+        if (receiveAllocator != null) {
+            bootstrap.option(ChannelOption.RCVBUF_ALLOCATOR, receiveAllocator);
+        }
 
-        ChannelFuture f = bootstrap.connect(url.getHost(), url.getPort())
-                .addListener((ChannelFutureListener) future -> {
+        ChannelFuture connect = bootstrap.connect(endpoint.address());
+        if (handle != null) {
+            handle.connecting(connect);
+        }
+        connect.addListener((ChannelFutureListener) future -> {
             if (future.isSuccess()) {
-                pipeline.writeAndFlush(httpRequest);
+                Channel channel = future.channel();
+                if (span != null) {
+                    span.mark(Phase.CONNECT);
+                }
+                if (interceptors == null) {
+                    write(channel, httpRequest, body);
+                } else {
+                    interceptors.onRequest(httpRequest, channel.eventLoop(),
+                            () -> write(channel, httpRequest, body),
+                            cause -> abort(channel, httpRequest, body, cause));
+                }
             } else {
-                httpCallback.onFailed(404, "404:can not connect", new Exception("can not connect"));
+                //请求没有机会写出，需要自己释放
+                ReferenceCountUtil.release(httpRequest);
+                if (body != null) {
+                    body.close();
+                }
+                if (reconnectPublisher != null) {
+                    //重连时连接失败，继续重连
+                    reconnect(reconnectPublisher, future.channel().eventLoop());
+                } else {
+                    httpCallback.onFailed(404, "404:can not connect", new Exception("can not connect"));
+                }
+            }
+        });
+    }
+
+    /**
+     * 写出请求，写入成功或失败时netty都会释放httpRequest并关闭body，写入失败交给ResponseHandler处理
+     * @param channel 已经建立的连接
+     * @param httpRequest netty的http请求类
+     * @param body 分块写出的请求体，可以为null
+     */
+    private void write(Channel channel, HttpRequest httpRequest, ChunkedInput<HttpContent> body) {
+        ChannelFuture written;
+        if (span != null) {
+            span.mark(Phase.INTERCEPT);
+        }
+        if (body == null) {
+            written = channel.writeAndFlush(httpRequest)
+                    .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+        } else if (uploadHandler.expectContinue()) {
+            //请求体在收到100 Continue或超时后由UploadHandler写出
+            written = channel.writeAndFlush(httpRequest)
+                    .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+            uploadHandler.awaitContinue(channel);
+        } else {
+            channel.write(httpRequest)
+                    .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+            written = uploadHandler.writeBody(channel);
+        }
+        if (span != null && written != null) {
+            Span span = this.span;
+            written.addListener(future -> span.mark(Phase.WRITE));
+        }
+    }
+
+    /**
+     * 请求拦截器失败，请求不再写出，异常交给pipeline中的响应handler执行回调并关闭连接
+     * @param channel 已经建立的连接
+     * @param httpRequest 需要释放的请求
+     * @param body 需要关闭的请求体，可以为null
+     * @param cause 拦截器的异常
+     */
+    private static void abort(Channel channel, HttpRequest httpRequest, ChunkedInput<HttpContent> body, Throwable cause) {
+        ReferenceCountUtil.release(httpRequest);
+        if (body != null) {
+            try {
+                body.close();
+            } catch (Exception ignored) {
+            }
+        }
+        channel.pipeline().fireExceptionCaught(cause);
+    }
+
+    /**
+     * 预先建立一个连接再关闭，用于预热：初始化event loop线程、解析域名、加载连接和编解码相关的类
+     * 每个请求都使用自己的连接，预先建立的连接不会被之后的请求复用
+     * @param endpoint 目标地址
+     * @param resources 连接使用的event loop
+     * @return 连接关闭后完成，连接失败时以失败的原因异常完成，由调用者决定如何处理
+     */
+    static CompletableFuture<Void> preconnect(Endpoint endpoint, ClientResources resources) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(resources.group(endpoint.transport()))
+                .channel(endpoint.transport().channelClass())
+                .handler(new HttpClientCodec());
+        bootstrap.connect(endpoint.address()).addListener((ChannelFutureListener) connect -> {
+            if (!connect.isSuccess()) {
+                future.completeExceptionally(connect.cause());
+                return;
             }
+            connect.channel().close().addListener(close -> future.complete(null));
         });
-        f.channel().closeFuture();
+        return future;
+    }
+
+    @Override
+    public Cancellable requestAsync(HttpCallback<T> httpCallback) {
+        RequestHandle<T> handle = new RequestHandle<>(CallbackExecutors.dispatch(trace(httpCallback), callbackExecutor));
+        send(handle);
+        return handle;
     }
 
     @Override
-    public void requestAsync(HttpCallback<T> httpCallback) {
+    public CompletableFuture<T> executeAsync() {
+        //结果直接在event loop中交给future，不经过回调线程
+        CancellableFuture<T> future = new CancellableFuture<>();
+        future.handle = new RequestHandle<>(trace(new HttpCallback<T>() {
+            @Override
+            public void onSuccess(T response) {
+                //future已经被取消时结果没有人接收，需要自己释放
+                if (!future.complete(response)) {
+                    ResultAdapter.release(response);
+                }
+            }
+
+            @Override
+            public void onFailed(int code, String message, Exception e) {
+                future.completeExceptionally(new HttpRequestException(code, message, e));
+            }
+        }));
+        send(future.handle);
+        return future;
+    }
+
+    @Override
+    public T execute() throws HttpRequestException {
+        if (resources.inEventLoop()) {
+            throw new IllegalStateException("execute() can not block the netty event loop");
+        }
+
+        CompletableFuture<T> future = executeAsync();
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw (HttpRequestException) e.getCause();
+        } catch (InterruptedException e) {
+            //等待的线程放弃了请求
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HttpRequestException(0, "interrupted while waiting for response", e);
+        }
+    }
+
+    /**
+     * cancel时中止请求的future
+     */
+    private static final class CancellableFuture<T> extends CompletableFuture<T> {
+        private RequestHandle<T> handle;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                handle.cancel();
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * 按限流发送请求，超过速率时延迟发送或立即以429失败
+     * @param handle 请求的回调及取消句柄
+     */
+    private void send(RequestHandle<T> handle) {
+        this.handle = handle;
+        if (!register(handle)) {
+            discard();
+            handle.onFailed(0, "client is shut down",
+                    new ClientShutdownException("Client is shut down, rejected " + httpMethod + " " + uri));
+            return;
+        }
+        long delay = acquire();
+        if (delay < 0) {
+            discard();
+            handle.onFailed(429, "429:rate limit exceeded",
+                    new RateLimitException("Rate limit exceeded for " + httpMethod + " " + uri));
+        } else if (delay > 0) {
+            //在event loop的定时器上等待，不占用调用者的线程
+            handle.delayed(resources.group(endpoint.transport()).next().schedule(() -> {
+                try {
+                    transmit(handle);
+                } catch (RuntimeException e) {
+                    handle.onFailed(0, "request failed : " + e.getMessage(), e);
+                }
+            }, delay, TimeUnit.NANOSECONDS), this::discard);
+        } else {
+            transmit(handle);
+        }
+    }
+
+    /**
+     * 向资源及代理登记进行中的请求，请求完成时注销
+     * @return 资源或代理已经关闭时返回false
+     */
+    private boolean register(RequestHandle<?> handle) {
+        RequestTracker resourceTracker = resources.tracker();
+        RequestTracker proxyTracker = tracker;
+        handle.onComplete(() -> {
+            resourceTracker.complete(handle);
+            if (proxyTracker != null) {
+                proxyTracker.complete(handle);
+            }
+        });
+        return resourceTracker.register(handle) && (proxyTracker == null || proxyTracker.register(handle));
+    }
+
+    /**
+     * 依次向代理及方法的限流预约许可
+     * @return 需要等待的纳秒数，被拒绝时返回-1
+     */
+    private long acquire() {
+        long now = System.nanoTime();
+        long hostDelay = hostLimiter == null ? 0 : hostLimiter.reserve(now);
+        if (hostDelay < 0) {
+            return -1;
+        }
+        long methodDelay = methodLimiter == null ? 0 : methodLimiter.reserve(now);
+        if (methodDelay < 0) {
+            return -1;
+        }
+        return Math.max(hostDelay, methodDelay);
+    }
+
+    /**
+     * 构建并发送请求
+     * @param httpCallback 在event loop中执行的回调
+     */
+    private void transmit(HttpCallback<T> httpCallback) {
+        if (handle.isCancelled()) {
+            discard();
+            return;
+        }
+        streamDecoder = streamDecoder();
         channelInitializer(httpCallback);
 
-        FullHttpRequest httpRequest = buildRequest();
-        //System.out.println(httpRequest);
-        doRequest(httpRequest);
+        if(isMultipart) {
+            MultipartEncoder encoder = multipartEncoder();
+            HttpRequest httpRequest = buildMultipartRequest(encoder);
+            uploadHandler = new UploadHandler(encoder, HttpUtil.is100ContinueExpected(httpRequest),
+                    expectContinueTimeoutMillis);
+            markBuilt();
+            doRequest(httpRequest, encoder, resources.group(endpoint.transport()));
+        } else if(streamingBody != null) {
+            JsonArrayEncoder encoder = jsonArrayEncoder();
+            HttpRequest httpRequest = buildStreamingRequest();
+            uploadHandler = new UploadHandler(encoder, false, 0);
+            markBuilt();
+            doRequest(httpRequest, encoder, resources.group(endpoint.transport()));
+        } else {
+            FullHttpRequest httpRequest = buildRequest();
+            markBuilt();
+            doRequest(httpRequest);
+        }
+    }
+
+    private void markBuilt() {
+        if (span != null) {
+            span.mark(Phase.BUILD);
+        }
     }
 
     /**
-     * 构建HTTP请求
+     * 开启追踪时为这次请求创建span，并包装回调，记录回调的排队及执行时间，回调返回后导出span
+     * @param callback 用户的回调
+     * @return 没有开启追踪时返回原来的回调
+     */
+    private HttpCallback<T> trace(HttpCallback<T> callback) {
+        if (spanSink == null) {
+            return callback;
+        }
+        span = new Span(httpMethod + " " + uri);
+        return new TracingCallback<>(callback, span, spanSink);
+    }
+
+    /**
+     * 构建HTTP请求，请求体的所有权会转移到返回的FullHttpRequest上，由调用者负责写出或释放
      * @return netty的FullHttpRequest对象，用于承载HTTP报文
      */
-    private FullHttpRequest buildRequest() {
-        FullHttpRequest httpRequest;
-        httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_0, httpMethod, url.getPath(), content);
+    FullHttpRequest buildRequest() {
+        //取走content的所有权，之后由FullHttpRequest负责释放
+        ByteBuf body = content;
+        content = null;
+
+        if(body == null) {
+            //没有请求体，例如GET请求，不分配任何缓冲区
+            body = Unpooled.EMPTY_BUFFER;
+        }
+
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_0, httpMethod, uri, body);
 
         //添加请求首部
         httpRequest.headers().add(headers);
 
-        //判断是否是multipart，再采取不同的操作
-        if(isMultipart) {
-            //multipart请求
-            String contentType = String.format("multipart/form-data;boundary=%s", multipartBoundary);
-            httpRequest.headers().add(HttpHeaderNames.CONTENT_TYPE, contentType);
-            //httpRequest.headers().add(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
-
-            //写入multipart文件
-            for(MultipartFile file : multipartFiles) {
-                writeMultipart(httpRequest.content(), file);
-            }
-
-            //写入序列化对象
-            for(MultipartBody body : multipartBodies) {
-                writeMultipart(httpRequest.content(), body);
-            }
-        } else {
-            //普通HTTP请求
-            httpRequest.content().writeBytes(content);
-            httpRequest.headers().add(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+        if(body.isReadable()) {
+            httpRequest.headers().add(HttpHeaderNames.CONTENT_TYPE, codec.contentType());
         }
+        accept(httpRequest.headers());
 
         //在首部填入content的长度
-        httpRequest.headers().add(HttpHeaderNames.CONTENT_LENGTH, httpRequest.content().readableBytes());
+        httpRequest.headers().set(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
 
-        System.out.println(httpRequest);
         return httpRequest;
     }
 
     /**
-     * 把文件写入到http请求的content中
-     * @param content netty的ByteBuf，用于存放经过编码后的byte的报文
-     * @param file 自定义的文件类，包含有需要写入content的文件
+     * 编码所有对象部分，创建multipart请求体的编码器
+     * @return 由调用者负责写出或关闭的编码器
      */
-    private void writeMultipart(ByteBuf content, MultipartFile file) {
-        //需要写入到content中的固定内容
-        String boundaryStart = "--"+multipartBoundary+"\r\n";
-        String boundaryEnd = "\r\n--"+multipartBoundary+"--"+"\r\n";
-        String contentDisposition = String.format("Content-Disposition:form-data;name=\"%s\";filename=\"%s\"\r\n",
-                file.getName(), file.getFile().getName());
-        String contentType = String.format("Content-Type:%s\r\n", file.getType());
+    MultipartEncoder multipartEncoder() {
+        return new MultipartEncoder(codec, allocator, multipartFiles, multipartBodies);
+    }
 
-        //执行写入
-        content.writeCharSequence(boundaryStart, StandardCharsets.UTF_8);
-        content.writeCharSequence(contentDisposition, StandardCharsets.UTF_8);
-        content.writeCharSequence(contentType, StandardCharsets.UTF_8);
-        content.writeCharSequence("\r\n", StandardCharsets.UTF_8);
-        //写入文件内容
-        try {
-            FileInputStream inputStream = new FileInputStream(file.getFile());
-            FileChannel fileChannel = inputStream.getChannel();
-            content.writeBytes(fileChannel, 0, (int) file.getFile().length());
-            fileChannel.close();
-            inputStream.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * 构建multipart请求的首部，请求体由encoder分块写出
+     * @param encoder 已经计算好长度的multipart编码器
+     * @return 只包含请求行和首部的HttpRequest
+     */
+    HttpRequest buildMultipartRequest(MultipartEncoder encoder) {
+        //multipart的对象部分都在encoder中，不使用content
+        discard();
+
+        //100-continue是HTTP/1.1的机制，连接仍然只用于这一个请求
+        boolean expectContinue = expectContinueThreshold >= 0 && encoder.length() >= expectContinueThreshold;
+        HttpRequest httpRequest = new DefaultHttpRequest(expectContinue ? HttpVersion.HTTP_1_1 : HttpVersion.HTTP_1_0,
+                httpMethod, uri);
+        httpRequest.headers().add(headers);
+        httpRequest.headers().set(HttpHeaderNames.CONTENT_TYPE, encoder.contentType());
+        accept(httpRequest.headers());
+        httpRequest.headers().set(HttpHeaderNames.CONTENT_LENGTH, encoder.length());
+        if (expectContinue) {
+            HttpUtil.set100ContinueExpected(httpRequest, true);
+            httpRequest.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            host(httpRequest.headers());
         }
-        //写入末尾分隔符
-        content.writeCharSequence(boundaryEnd, StandardCharsets.UTF_8);
+        return httpRequest;
+    }
+
+    /**
+     * 取走流式请求体，创建逐个编码元素的编码器
+     * @return 由调用者负责写出或关闭的编码器
+     */
+    JsonArrayEncoder jsonArrayEncoder() {
+        Object body = streamingBody;
+        streamingBody = null;
+        if (body instanceof BaseStream) {
+            BaseStream<?, ?> stream = (BaseStream<?, ?>) body;
+            return new JsonArrayEncoder((JsonCodec) codec, stream.iterator(), stream);
+        }
+        if (body instanceof Iterator) {
+            return new JsonArrayEncoder((JsonCodec) codec, (Iterator<?>) body, null);
+        }
+        return new JsonArrayEncoder((JsonCodec) codec, ((Iterable<?>) body).iterator(), null);
+    }
+
+    /**
+     * 构建流式请求体的请求首部，请求体由JsonArrayEncoder分块写出
+     * @return 只包含请求行和首部的HttpRequest
+     */
+    HttpRequest buildStreamingRequest() {
+        //chunked是HTTP/1.1的传输编码，连接仍然只用于这一个请求
+        HttpRequest httpRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, httpMethod, uri);
+        httpRequest.headers().add(headers);
+        httpRequest.headers().set(HttpHeaderNames.CONTENT_TYPE, codec.contentType());
+        accept(httpRequest.headers());
+        HttpUtil.setTransferEncodingChunked(httpRequest, true);
+        httpRequest.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        host(httpRequest.headers());
+        return httpRequest;
     }
 
     /**
-     * 把序列化后对象写入到content中
-     * @param content netty的ByteBuf，用于存放经过编码后的byte的报文
-     * @param body 经过封装后的需要发送的序列化对象
+     * HTTP/1.1的请求必须带有Host首部，否则服务端以400拒绝
+     * @param httpHeaders 请求的首部，已经设置了Host时不覆盖
      */
-    private void writeMultipart(ByteBuf content, MultipartBody body) {
-        //需要写入到content中的固定内容
-        String boundaryStart = "--"+multipartBoundary+"\r\n";
-        String boundaryEnd = "\r\n--"+multipartBoundary+"--"+"\r\n";
-        String contentDisposition = String.format("Content-Disposition:form-data;name=\"%s\"\r\n", body.getName());
-        String contentType = String.format("Content-Type:%s\r\n", "application/json");
+    private void host(HttpHeaders httpHeaders) {
+        if (!httpHeaders.contains(HttpHeaderNames.HOST)) {
+            httpHeaders.set(HttpHeaderNames.HOST, endpoint.hostHeader());
+        }
+    }
 
-        //执行写入操作
-        content.writeCharSequence(boundaryStart, StandardCharsets.UTF_8);
-        content.writeCharSequence(contentDisposition, StandardCharsets.UTF_8);
-        content.writeCharSequence(contentType, StandardCharsets.UTF_8);
-        content.writeCharSequence("\r\n", StandardCharsets.UTF_8);
-        content.writeCharSequence(body.getJson(), StandardCharsets.UTF_8);
-        content.writeCharSequence(boundaryEnd, StandardCharsets.UTF_8);
+    /**
+     * 聚合的响应由编解码器解码，没有指定Accept时按编解码器的格式协商；开启解压时声明支持的压缩格式；
+     * 开启追踪时写入traceparent
+     * @param httpHeaders 请求的首部
+     */
+    private void accept(HttpHeaders httpHeaders) {
+        if(responseMode == ResponseMode.AGGREGATE && !httpHeaders.contains(HttpHeaderNames.ACCEPT)) {
+            String accept = resultAdapter != null ? resultAdapter.accept() : null;
+            httpHeaders.set(HttpHeaderNames.ACCEPT, accept != null ? accept : codec.contentType());
+        }
+        if(decompress && !httpHeaders.contains(HttpHeaderNames.ACCEPT_ENCODING)) {
+            httpHeaders.set(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP_DEFLATE);
+        }
+        if(span != null) {
+            span.inject(httpHeaders);
+        }
     }
 
     /**
@@ -177,29 +576,185 @@ public class NettyRequest<T> implements Request<T> {
      */
     protected void channelInitializer(HttpCallback<T> callback) {
         this.httpCallback = callback;
-        initializer = new ChannelInitializer<SocketChannel>() {
+        initializer = new ChannelInitializer<Channel>() {
             @Override
-            protected void initChannel(SocketChannel ch) throws Exception {
-                pipeline = ch.pipeline();
+            protected void initChannel(Channel ch) throws Exception {
+                ChannelPipeline pipeline = ch.pipeline();
                 pipeline.addLast(new HttpClientCodec());
-                pipeline.addLast(new HttpObjectAggregator(2048 * 1024));
-                pipeline.addLast(new ResponseHandler<>(codec, callback, resultType));
-                //pipeline.addLast(new ChunkedWriteHandler());//后续开发大文件传输使用
+                if(uploadHandler != null) {
+                    pipeline.addLast(uploadHandler);
+                }
+                if(hostLimiter != null) {
+                    pipeline.addLast(hostLimiter.responseHandler());
+                }
+                if(methodLimiter != null) {
+                    pipeline.addLast(methodLimiter.responseHandler());
+                }
+                if(span != null) {
+                    pipeline.addLast(new TracingHandler(span));
+                }
+                if(decompress) {
+                    pipeline.addLast(new HttpContentDecompressor());
+                }
+                if(uploadHandler != null) {
+                    //multipart及流式请求体由ChunkedWriteHandler分块写出
+                    pipeline.addLast(new ChunkedWriteHandler());
+                }
+                addResponseHandler(pipeline, callback);
             }
         };
     }
 
     /**
-     * 设置http请求的url
+     * 根据响应的处理方式添加handler，流式响应不经过HttpObjectAggregator
+     * @param pipeline 连接的pipeline
+     * @param callback 对结果的回调
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void addResponseHandler(ChannelPipeline pipeline, HttpCallback<T> callback) {
+        ResultAdapter adapter = resultAdapter != null ? resultAdapter : ResultAdapter.of(resultType);
+        if (responseMode == ResponseMode.AGGREGATE) {
+            //不需要响应体的结果类型边读边丢弃
+            pipeline.addLast(adapter.discardsBody() ? new BodyDiscarder() : new HttpObjectAggregator(maxResponseSize));
+        }
+        if (interceptors != null) {
+            //聚合之后再拦截，响应拦截器可以读取完整的响应体
+            pipeline.addLast(interceptors.responseHandler());
+        }
+
+        switch (responseMode) {
+            case STREAM:
+                pipeline.addLast(new StreamingResponseHandler<>((HttpCallback) callback, ContentDecoder.bytes()));
+                break;
+            case DOWNLOAD:
+                Path path = downloadTarget instanceof File ? ((File) downloadTarget).toPath() : (Path) downloadTarget;
+                pipeline.addLast(new StreamingResponseHandler<>(
+                        new FileDownloadCallback<>(path, (T) downloadTarget, callback), ContentDecoder.bytes()));
+                break;
+            case NDJSON:
+            case SSE:
+                pipeline.addLast(new StreamingResponseHandler<>((HttpCallback) callback, streamDecoder,
+                        (ChannelPublisher) reconnectPublisher, reconnect ? this::reconnect : null));
+                break;
+            default:
+                pipeline.addLast(new ResponseHandler<>(codec, callback, adapter, span));
+        }
+    }
+
+    /**
+     * 创建@Stream响应的解码器
+     * @return 解码器，非@Stream请求返回null
+     */
+    private ContentDecoder<?> streamDecoder() {
+        switch (responseMode) {
+            case NDJSON:
+                return new NdjsonDecoder<>((JsonCodec) codec, elementType, MAX_LINE_LENGTH);
+            case SSE:
+                //原始事件不需要解码data，不限制编解码器
+                JsonCodec textCodec = codec instanceof JsonCodec ? (JsonCodec) codec : null;
+                return new ServerSentEventDecoder<>(textCodec, elementType, MAX_LINE_LENGTH, retryMillis);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * SSE连接断开后，等待服务端指定的间隔，带着Last-Event-ID在同一个event loop上重新发送请求
+     * 等待中的重连作为进行中的请求登记，关闭时等待它结束或超时后取消，已经开始关闭时不再重连
+     * @param publisher 需要由新连接继续发布的Publisher
+     * @param eventLoop 原连接的event loop
+     * @return 客户端已经关闭时返回false，Publisher以ClientShutdownException结束
+     */
+    private boolean reconnect(ChannelPublisher<?> publisher, EventLoop eventLoop) {
+        ServerSentEventDecoder<?> decoder = (ServerSentEventDecoder<?>) streamDecoder;
+        RequestHandle<Void> pending = new RequestHandle<>(new HttpCallback<Void>() {
+            @Override
+            public void onSuccess(Void response) {
+            }
+
+            @Override
+            public void onFailed(int code, String message, Exception e) {
+                if (eventLoop.inEventLoop()) {
+                    publisher.fail(e);
+                } else {
+                    eventLoop.execute(() -> publisher.fail(e));
+                }
+            }
+        });
+        if (!register(pending)) {
+            pending.onFailed(0, "client is shut down", shutdownException());
+            return false;
+        }
+        try {
+            pending.delayed(eventLoop.schedule(() -> {
+                if (publisher.isTerminated()) {
+                    pending.onSuccess(null);
+                    return;
+                }
+                if (isShutdown()) {
+                    pending.onFailed(0, "client is shut down", shutdownException());
+                    return;
+                }
+                pending.onSuccess(null);
+                decoder.reset();
+                reconnectPublisher = publisher;
+                if (decoder.lastEventId() != null) {
+                    headers.set("Last-Event-ID", decoder.lastEventId());
+                }
+                if (replayBody instanceof String) {
+                    content((String) replayBody);
+                } else if (replayBody != null) {
+                    body(replayBody);
+                }
+                doRequest(buildRequest(), eventLoop);
+            }, decoder.retryMillis(), TimeUnit.MILLISECONDS), () -> { });
+        } catch (RejectedExecutionException e) {
+            pending.onFailed(0, "client is shut down", shutdownException());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return 资源或代理是否已经开始关闭
+     */
+    private boolean isShutdown() {
+        return resources.isShutdown() || (tracker != null && tracker.isClosed());
+    }
+
+    private ClientShutdownException shutdownException() {
+        return new ClientShutdownException("Client is shut down, stopped reconnecting " + httpMethod + " " + uri);
+    }
+
+    /**
+     * 设置http请求的url，会解析url，已经有解析好的目标地址时应使用endpoint和uri
      * @param url url字符串
      * @return NettyRequest本身，使用builder模式创建
      */
     protected NettyRequest<T> url(String url) {
-        try {
-            this.url = new URL(url);
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-        }
+        this.endpoint = Endpoint.parse(url);
+        String uri = Endpoint.stripOrigin(url);
+        this.uri = uri.isEmpty() ? "/" : uri;
+        return this;
+    }
+
+    /**
+     * 设置请求的目标地址
+     * @param endpoint bind时解析好的目标地址
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> endpoint(Endpoint endpoint) {
+        this.endpoint = endpoint;
+        return this;
+    }
+
+    /**
+     * 设置请求行中的URI
+     * @param uri 已经过编码的路径及查询参数
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> uri(String uri) {
+        this.uri = uri;
         return this;
     }
 
@@ -235,22 +790,260 @@ public class NettyRequest<T> implements Request<T> {
     }
 
     /**
-     * 设置content
+     * 设置content，只有在这里才会分配请求体的缓冲区
      * @param json 序列化后的对象
      * @return NettyRequest本身，使用builder模式创建
      */
     protected NettyRequest<T> content(String json) {
-        this.content.writeCharSequence(json, StandardCharsets.UTF_8);
+        if(reconnect) {
+            //重连时需要重新发送
+            replayBody = json;
+        }
+        if(content == null) {
+            content = allocator.buffer(ByteBufUtil.utf8Bytes(json));
+        }
+        ByteBufUtil.writeUtf8(content, json);
         return this;
     }
 
+    /**
+     * 用编解码器把对象编码为请求体，直接写入池化的缓冲区
+     * 使用JSON编解码器时，Iterator、Stream及估计长度达到阈值的Collection作为JSON数组在发送时逐个编码、分块写出
+     * @param value 需要发送的对象
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> body(Object value) {
+        boolean sequence = value instanceof Iterator || value instanceof BaseStream;
+        if(!reconnect && codec instanceof JsonCodec && (sequence || exceedsStreamingThreshold(value))) {
+            streamingBody = value;
+            return this;
+        }
+        if(sequence) {
+            //不能分块发送时先收集为List再一次编码
+            value = collect(value);
+        }
+        if(reconnect) {
+            //重连时需要重新编码发送
+            replayBody = value;
+        }
+        if(content == null) {
+            content = allocator.buffer();
+        }
+        codec.encode(value, content);
+        return this;
+    }
+
+    /**
+     * 用第一个元素估计Collection编码后的长度
+     * @return 估计的长度达到分块发送的阈值时返回true
+     */
+    private boolean exceedsStreamingThreshold(Object value) {
+        if (!(value instanceof Collection) || streamingThreshold < 0 || ((Collection<?>) value).isEmpty()) {
+            return false;
+        }
+        Collection<?> collection = (Collection<?>) value;
+        ByteBuf sample = allocator.buffer();
+        try {
+            codec.encode(collection.iterator().next(), sample);
+            //加上分隔元素的逗号
+            return (long) (sample.readableBytes() + 1) * collection.size() >= streamingThreshold;
+        } finally {
+            sample.release();
+        }
+    }
+
+    private static List<Object> collect(Object sequence) {
+        List<Object> list = new ArrayList<>();
+        if (sequence instanceof BaseStream) {
+            try (BaseStream<?, ?> stream = (BaseStream<?, ?>) sequence) {
+                stream.iterator().forEachRemaining(list::add);
+            }
+        } else {
+            ((Iterator<?>) sequence).forEachRemaining(list::add);
+        }
+        return list;
+    }
+
+    /**
+     * 放弃这个请求，释放已经分配的请求体，关闭还没有发送的Stream请求体
+     */
+    protected void discard() {
+        ReferenceCountUtil.release(content);
+        content = null;
+        if (streamingBody instanceof BaseStream) {
+            ((BaseStream<?, ?>) streamingBody).close();
+        }
+        streamingBody = null;
+    }
+
     /**
      * 返回content转化为对象的类型
      * @param type 被NettyRequest所包装的泛型参数的实际类型，即 T
      * @return
      */
     protected NettyRequest<T> resultType(Type type) {
+        return resultType(type, ResultAdapter.of(type));
+    }
+
+    /**
+     * 设置结果类型及bind时已经选择好的转换方式
+     * @param type 被NettyRequest所包装的泛型参数的实际类型，即 T
+     * @param adapter 聚合的响应转换为结果的方式
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> resultType(Type type, ResultAdapter adapter) {
         this.resultType = type;
+        this.resultAdapter = adapter;
+        return this;
+    }
+
+    /**
+     * 设置响应的处理方式
+     * @param responseMode bind时根据结果类型确定的处理方式
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> responseMode(ResponseMode responseMode) {
+        this.responseMode = responseMode;
+        return this;
+    }
+
+    /**
+     * 设置@Stream的解码方式
+     * @param elementType Flow.Publisher发布的记录类型
+     * @param reconnect SSE连接断开后是否自动重连
+     * @param retryMillis 重连前等待的毫秒数，可以被服务端的retry字段修改
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> stream(Type elementType, boolean reconnect, long retryMillis) {
+        this.elementType = elementType;
+        this.reconnect = reconnect && responseMode == ResponseMode.SSE;
+        this.retryMillis = retryMillis;
+        return this;
+    }
+
+    /**
+     * 设置下载的目标文件
+     * @param target Path或File，下载完成后作为结果交给回调
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> download(Object target) {
+        this.downloadTarget = target;
+        return this;
+    }
+
+    /**
+     * 设置执行回调的线程
+     * @param callbackExecutor 为null时在event loop中执行
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> callbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    /**
+     * 设置请求体及连接使用的分配器
+     * @param allocator 默认为netty的池化分配器
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> allocator(ByteBufAllocator allocator) {
+        this.allocator = allocator;
+        return this;
+    }
+
+    /**
+     * 设置读缓冲区的分配器
+     * @param receiveAllocator 同一目标地址的请求共享的分配器，为null时使用netty默认的
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> receiveAllocator(RecvByteBufAllocator receiveAllocator) {
+        this.receiveAllocator = receiveAllocator;
+        return this;
+    }
+
+    /**
+     * 设置聚合的响应的最大长度
+     * @param maxResponseSize 超过时请求失败
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> maxResponseSize(int maxResponseSize) {
+        this.maxResponseSize = maxResponseSize;
+        return this;
+    }
+
+    /**
+     * 设置是否解压响应
+     * @param decompress true时请求带上Accept-Encoding，并解压gzip/deflate编码的响应
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> decompress(boolean decompress) {
+        this.decompress = decompress;
+        return this;
+    }
+
+    /**
+     * 开启追踪
+     * @param spanSink 导出span的sink，为null时不追踪
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> tracing(SpanSink spanSink) {
+        this.spanSink = spanSink;
+        return this;
+    }
+
+    /**
+     * 设置拦截器链
+     * @param interceptors 代理上注册的拦截器，为null时没有拦截器
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> interceptors(InterceptorChain interceptors) {
+        this.interceptors = interceptors;
+        return this;
+    }
+
+    /**
+     * 设置multipart请求的Expect: 100-continue
+     * @param threshold 请求体达到该字节数时先只发送首部，小于0时不使用
+     * @param timeoutMillis 没有收到100 Continue时，等待该毫秒数后直接发送请求体
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> expectContinue(long threshold, long timeoutMillis) {
+        this.expectContinueThreshold = threshold;
+        this.expectContinueTimeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * 设置Collection请求体分块流式发送的阈值，需要在设置请求体之前调用
+     * @param threshold 估计的长度达到该字节数时分块发送，小于0时Collection总是一次编码
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> streamingThreshold(long threshold) {
+        this.streamingThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * 设置发送请求使用的资源
+     * @param resources 代理使用的event loop
+     * @param tracker 代理上记录进行中的请求的tracker，可以为null
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> resources(ClientResources resources, RequestTracker tracker) {
+        this.resources = resources;
+        this.tracker = tracker;
+        return this;
+    }
+
+    /**
+     * 设置限流
+     * @param hostLimiter 代理的所有请求共享的限流，可以为null
+     * @param methodLimiter 方法上@RateLimit的限流，可以为null
+     * @return NettyRequest本身，使用builder模式创建
+     */
+    protected NettyRequest<T> rateLimit(RateLimiter hostLimiter, RateLimiter methodLimiter) {
+        this.hostLimiter = hostLimiter;
+        this.methodLimiter = methodLimiter;
         return this;
     }
 
@@ -259,7 +1052,7 @@ public class NettyRequest<T> implements Request<T> {
      * @param codec 编解码器，用于对需要序列化的对象进行编解码
      * @return NettyRequest本身，使用builder模式创建
      */
-    protected NettyRequest<T> codec(JsonCodec codec) {
+    protected NettyRequest<T> codec(Codec codec) {
         this.codec = codec;
         return this;
     }
@@ -288,11 +1081,11 @@ public class NettyRequest<T> implements Request<T> {
     /**
      * 添加multipart内容
      * @param name 参数名
-     * @param json 需要发送的序列化后的对象
+     * @param value 需要发送的对象，构建请求时才由编解码器编码
      * @return NettyRequest本身，使用builder模式创建
      */
-    protected NettyRequest<T> addMultipart(String name, String json) {
-        multipartBodies.add(new MultipartBody(name, json));
+    protected NettyRequest<T> addMultipart(String name, Object value) {
+        multipartBodies.add(new MultipartBody(name, value));
         return this;
     }
 
@@ -320,19 +1113,21 @@ public class NettyRequest<T> implements Request<T> {
         public MultipartFile(String name, File file) {
             this.name = name;
             this.file = file;
-            type = HttpHeaderValues.APPLICATION_OCTET_STREAM.toString();
+            //根据扩展名确定类型，未知的扩展名作为二进制流
+            String guessed = URLConnection.guessContentTypeFromName(file.getName());
+            type = guessed != null ? guessed : HttpHeaderValues.APPLICATION_OCTET_STREAM.toString();
         }
     }
 
     /**
-     * 对请求实体对象序列化的封装类
+     * 对请求实体对象的封装类
      */
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
     static class MultipartBody {
         private String name;
-        private String json;
+        private Object value;
     }
 }
 
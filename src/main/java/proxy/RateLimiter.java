@@ -0,0 +1,149 @@
+package proxy;
+
+import annotation.method.RateLimit;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁的令牌桶，按GCRA实现：只记录下一个许可理论上的发放时间，多个线程通过CAS竞争预约
+ * 一个实例可以被同一个代理的所有请求共享
+ */
+final class RateLimiter {
+    //没有Retry-After或无法解析时，429之后暂停的时间
+    private static final long DEFAULT_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    //Retry-After最多遵守的时间，避免错误的响应使客户端长时间不可用
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    //两个许可之间的间隔，及突发请求允许提前的时间
+    private final long intervalNanos;
+    private final long toleranceNanos;
+
+    private final RateLimit.Mode mode;
+    private final long maxDelayNanos;
+
+    //下一个许可理论上的发放时间，System.nanoTime可能为负，所以初始值为最小值
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    //无状态，所有连接共享同一个实例
+    private final RetryAfterHandler responseHandler = new RetryAfterHandler();
+
+    /**
+     * @param permitsPerSecond 每秒允许的请求数
+     * @param burst 允许连续发出的请求数
+     * @param mode 超过速率时等待还是拒绝
+     * @param maxDelayMillis 最多等待的毫秒数
+     * @throws IllegalArgumentException 速率不是正数或burst小于1
+     */
+    RateLimiter(double permitsPerSecond, int burst, RateLimit.Mode mode, long maxDelayMillis)
+            throws IllegalArgumentException {
+        if (!(permitsPerSecond > 0) || burst < 1 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Invalid rate limit: " + permitsPerSecond + "/s, burst " + burst
+                    + ", max delay " + maxDelayMillis + "ms");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.mode = mode;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    }
+
+    static RateLimiter of(RateLimit rateLimit) throws IllegalArgumentException {
+        return new RateLimiter(rateLimit.value(), rateLimit.burst(), rateLimit.mode(), rateLimit.maxDelayMillis());
+    }
+
+    /**
+     * @return 检查响应状态码及Retry-After的handler
+     */
+    ChannelHandler responseHandler() {
+        return responseHandler;
+    }
+
+    /**
+     * 预约一个许可，被拒绝时不消耗许可
+     * @param now 当前的System.nanoTime
+     * @return 发送前需要等待的纳秒数，被拒绝时返回-1
+     */
+    long reserve(long now) {
+        for (;;) {
+            long current = theoreticalArrival.get();
+            long arrival = Math.max(current, now);
+            long delay = Math.max(0, arrival - toleranceNanos - now);
+            if (delay > 0 && (mode == RateLimit.Mode.REJECT || delay > maxDelayNanos)) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(current, arrival + intervalNanos)) {
+                return delay;
+            }
+        }
+    }
+
+    /**
+     * 在指定时间之前不再发放许可，之后从空的令牌桶重新开始
+     * @param until System.nanoTime表示的时间
+     */
+    void pause(long until) {
+        for (;;) {
+            long current = theoreticalArrival.get();
+            long arrival = until + toleranceNanos;
+            if (current >= arrival || theoreticalArrival.compareAndSet(current, arrival)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 服务端要求降低速率时暂停：429，或带Retry-After的503
+     * @param response 响应的首部
+     */
+    void onResponse(HttpResponse response) {
+        HttpResponseStatus status = response.status();
+        String retryAfter = response.headers().get(HttpHeaderNames.RETRY_AFTER);
+        if (status.code() == 429 || (status.code() == 503 && retryAfter != null)) {
+            pause(System.nanoTime() + backoffNanos(retryAfter));
+        }
+    }
+
+    /**
+     * 解析Retry-After，可以是秒数或HTTP日期
+     * @return 需要暂停的纳秒数
+     */
+    static long backoffNanos(String retryAfter) {
+        if (retryAfter == null) {
+            return DEFAULT_BACKOFF_NANOS;
+        }
+        long nanos;
+        try {
+            nanos = TimeUnit.SECONDS.toNanos(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            Date date = DateFormatter.parseHttpDate(retryAfter);
+            if (date == null) {
+                return DEFAULT_BACKOFF_NANOS;
+            }
+            nanos = TimeUnit.MILLISECONDS.toNanos(date.getTime() - System.currentTimeMillis());
+        }
+        return Math.min(Math.max(0, nanos), MAX_BACKOFF_NANOS);
+    }
+
+    /**
+     * 紧跟在HttpClientCodec之后，所有响应处理方式都能在解码前看到状态码
+     */
+    @ChannelHandler.Sharable
+    private final class RetryAfterHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof HttpResponse) {
+                onResponse((HttpResponse) msg);
+            }
+            ctx.fireChannelRead(msg);
+        }
+    }
+}
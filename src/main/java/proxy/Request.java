@@ -1,11 +1,29 @@
 package proxy;
 
 import callback.HttpCallback;
+import exceptions.HttpRequestException;
+
+import java.util.concurrent.CompletableFuture;
 
 public interface Request<T>{
     /**
      * 发送异步的HTTP请求
      * @param callback 收到response后执行的回调
+     * @return 取消请求的句柄
+     */
+    Cancellable requestAsync(HttpCallback<T> callback);
+
+    /**
+     * 发送异步的HTTP请求，future在event loop中完成，耗时的后续操作应使用*Async方法切换线程
+     * @return 失败时异常为HttpRequestException的future，cancel会中止请求并释放资源
+     */
+    CompletableFuture<T> executeAsync();
+
+    /**
+     * 发送HTTP请求并阻塞等待结果，适合在虚拟线程中调用，不能在netty的event loop中调用
+     * 等待时被中断会取消请求
+     * @return 解码后的响应
+     * @throws HttpRequestException 请求失败或等待时被中断
      */
-    void requestAsync(HttpCallback<T> callback);
+    T execute() throws HttpRequestException;
 }
@@ -1,8 +1,13 @@
 package proxy;
 
-import codec.JsonCodec;
+import annotation.method.RateLimit;
+import codec.Codec;
+import interceptor.Interceptor;
+import trace.SpanSink;
+import io.netty.buffer.ByteBufAllocator;
 
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 public interface RequestBuilder {
     /**
@@ -14,10 +19,10 @@ public interface RequestBuilder {
 
     /**
      * 设置编解码器
-     * @param codec 必须是实现了JsonCodec接口
+     * @param codec 实现了Codec接口，NDJSON及需要解码data的SSE必须是JsonCodec
      * @return builder本身
      */
-    RequestBuilder codec(JsonCodec codec);
+    RequestBuilder codec(Codec codec);
 
     /**
      * 添加一个请求首部
@@ -40,4 +45,106 @@ public interface RequestBuilder {
      * @return builder本身
      */
     RequestBuilder multipart(boolean isMultipart);
+
+    /**
+     * 设置执行回调的线程，默认在netty的event loop中执行
+     * @param executor 可以使用CallbackExecutors中的线程池
+     * @return builder本身
+     */
+    RequestBuilder callbackExecutor(Executor executor);
+
+    /**
+     * 开启预热，bind时并行地为所有结果类型和请求体类型构建编解码器，并预先建立连接，
+     * 使部署后的第一批请求不必承担这些冷启动开销；每个请求使用自己的连接，预先建立的连接不会被复用，
+     * 预热的只是event loop线程、域名解析及类加载，连接的结果由NettyProxy.warmedUp报告
+     * @param connections 预先建立并关闭的连接数，为0时只预热编解码器
+     * @return builder本身
+     */
+    RequestBuilder warmUp(int connections);
+
+    /**
+     * 设置请求体及连接使用的分配器，默认为netty的池化分配器
+     * @param allocator 可以使用Allocators创建独立的池化分配器，并通过Allocators.stats查看使用情况
+     * @return builder本身
+     */
+    RequestBuilder allocator(ByteBufAllocator allocator);
+
+    /**
+     * 开启按目标地址自适应的读缓冲区，新连接从之前的响应中学到的大小开始读取
+     * @param minimum 读缓冲区的最小值
+     * @param initial 初始值
+     * @param maximum 读缓冲区的最大值
+     * @return builder本身
+     */
+    RequestBuilder adaptiveReceiveBuffer(int minimum, int initial, int maximum);
+
+    /**
+     * 设置聚合的响应的最大长度，默认为2MB，超过时请求失败
+     * @param bytes 最大字节数
+     * @return builder本身
+     */
+    RequestBuilder maxResponseSize(int bytes);
+
+    /**
+     * 设置@RequestBody分块流式发送的阈值，只对JSON编解码器生效
+     * Collection估计编码后的长度达到阈值时以chunked编码作为JSON数组边编码边发送，Iterator及Stream总是这样发送
+     * @param bytes 默认为1MB，小于0时Collection总是一次编码到一个池化的缓冲区
+     * @return builder本身
+     */
+    RequestBuilder streamingBodyThreshold(long bytes);
+
+    /**
+     * 设置是否解压响应，开启时请求带上Accept-Encoding: gzip,deflate
+     * @param decompress 默认为false
+     * @return builder本身
+     */
+    RequestBuilder decompress(boolean decompress);
+
+    /**
+     * 在拦截器链的末尾添加一个拦截器，拦截器在请求写出前及响应解码前按注册的顺序执行
+     * @param interceptor 同步的Interceptor或异步的AsyncInterceptor
+     * @return builder本身
+     */
+    RequestBuilder interceptor(Interceptor interceptor);
+
+    /**
+     * 开启追踪，每个请求记录各阶段的耗时，写入W3C traceparent首部，回调返回后把span交给sink
+     * @param sink 可以使用InMemorySpanSink，为null时关闭追踪
+     * @return builder本身
+     */
+    RequestBuilder tracing(SpanSink sink);
+
+    /**
+     * 限制代理的所有请求的速率，与方法上的@RateLimit同时生效，收到429时按Retry-After暂停
+     * @param permitsPerSecond 每秒允许的请求数
+     * @param burst 允许连续发出的请求数
+     * @param mode DELAY时在event loop的定时器上最多等待10秒，REJECT时立即以429失败
+     * @return builder本身
+     * @throws IllegalArgumentException 速率不是正数或burst小于1
+     */
+    RequestBuilder rateLimit(double permitsPerSecond, int burst, RateLimit.Mode mode) throws IllegalArgumentException;
+
+    /**
+     * 开启大的multipart请求的Expect: 100-continue，服务端拒绝（例如401、413）时不会上传请求体
+     * 请求体在收到100 Continue或等待超时后发送，服务端提前给出最终响应时停止上传并关闭连接
+     * @param thresholdBytes 请求体达到该字节数时才使用，小于0时关闭
+     * @param timeoutMillis 服务端不支持100-continue时，等待该毫秒数后直接发送请求体
+     * @return builder本身
+     */
+    RequestBuilder expectContinue(long thresholdBytes, long timeoutMillis);
+
+    /**
+     * 使用指定的资源发送请求，资源可以被多个代理共享，由创建者关闭，默认为ClientResources.shared()
+     * @param resources 请求使用的event loop及分配器
+     * @return builder本身
+     */
+    RequestBuilder clientResources(ClientResources resources);
+
+    /**
+     * 代理使用自己独立的event loop及池化分配器，不受其他客户端占用event loop的影响，随代理的close关闭
+     * @param threads event loop的线程数
+     * @return builder本身
+     * @throws IllegalArgumentException 线程数不是正数
+     */
+    RequestBuilder eventLoopThreads(int threads) throws IllegalArgumentException;
 }
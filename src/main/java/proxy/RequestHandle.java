@@ -0,0 +1,144 @@
+package proxy;
+
+import callback.HttpCallback;
+import handler.ResultAdapter;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOption;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一次请求的回调及取消句柄，保证回调只执行一次
+ * 取消可以在任意线程调用，与event loop中的发送通过volatile字段互相检查，先发生的一方负责中止
+ */
+final class RequestHandle<T> implements HttpCallback<T>, Cancellable {
+    private final HttpCallback<T> callback;
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private volatile boolean cancelled = false;
+
+    //限流时等待发送的任务，及取消它之后需要释放的请求体
+    private volatile ScheduledFuture<?> delayed;
+    private volatile Runnable discard;
+
+    //正在进行的连接，连接成功后即为请求所在的连接
+    private volatile ChannelFuture connect;
+
+    //回调执行后通知RequestTracker，只在发送前设置
+    private Runnable completion;
+
+    RequestHandle(HttpCallback<T> callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * 设置请求完成时的通知
+     * @param completion 在成功、失败或取消的回调之后执行一次
+     */
+    void onComplete(Runnable completion) {
+        this.completion = completion;
+    }
+
+    /**
+     * 记录限流时等待发送的任务
+     * @param task event loop的定时任务
+     * @param discard 任务被取消时释放请求体
+     */
+    void delayed(ScheduledFuture<?> task, Runnable discard) {
+        this.discard = discard;
+        this.delayed = task;
+        if (cancelled && task.cancel(false)) {
+            discard.run();
+        }
+    }
+
+    /**
+     * 记录请求的连接，已经取消时立即中止
+     * @param connect Bootstrap.connect返回的future
+     */
+    void connecting(ChannelFuture connect) {
+        this.connect = connect;
+        if (cancelled) {
+            abort(connect);
+        }
+    }
+
+    @Override
+    public boolean cancel() {
+        if (!completed.compareAndSet(false, true)) {
+            return false;
+        }
+        cancelled = true;
+        ScheduledFuture<?> task = delayed;
+        if (task != null && task.cancel(false)) {
+            discard.run();
+        }
+        ChannelFuture connect = this.connect;
+        if (connect != null) {
+            abort(connect);
+        }
+        try {
+            callback.onFailed(0, "request cancelled", new CancellationException("request cancelled"));
+        } finally {
+            completed();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 取消正在进行的连接，已经建立的连接以RST关闭，pipeline中的handler随之释放请求及请求体
+     */
+    private static void abort(ChannelFuture connect) {
+        if (connect.cancel(false)) {
+            return;
+        }
+        Channel channel = connect.channel();
+        if (channel.isActive()) {
+            try {
+                channel.config().setOption(ChannelOption.SO_LINGER, 0);
+            } catch (ChannelException ignored) {
+                //连接恰好已经关闭
+            }
+        }
+        channel.close();
+    }
+
+    @Override
+    public void onSuccess(T response) {
+        if (completed.compareAndSet(false, true)) {
+            try {
+                callback.onSuccess(response);
+            } finally {
+                completed();
+            }
+        } else {
+            //已经被取消，结果不会交给回调，需要自己释放
+            ResultAdapter.release(response);
+        }
+    }
+
+    @Override
+    public void onFailed(int code, String message, Exception e) {
+        if (completed.compareAndSet(false, true)) {
+            try {
+                callback.onFailed(code, message, e);
+            } finally {
+                completed();
+            }
+        }
+    }
+
+    private void completed() {
+        if (completion != null) {
+            completion.run();
+        }
+    }
+}
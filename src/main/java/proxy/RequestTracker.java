@@ -0,0 +1,64 @@
+package proxy;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录进行中的请求，关闭后拒绝新的请求，并等待进行中的请求完成
+ */
+final class RequestTracker {
+    private final Set<RequestHandle<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+    private volatile boolean closed = false;
+
+    /**
+     * 登记一个即将发送的请求
+     * @return 已经关闭时返回false，请求不应发送
+     */
+    boolean register(RequestHandle<?> handle) {
+        if (closed) {
+            return false;
+        }
+        inFlight.add(handle);
+        //与close并发时，close可能已经检查过请求是否都已完成
+        if (closed) {
+            complete(handle);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 请求完成，回调已经执行
+     */
+    void complete(RequestHandle<?> handle) {
+        inFlight.remove(handle);
+        if (closed && inFlight.isEmpty()) {
+            drained.complete(null);
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 拒绝新的请求，等待进行中的请求完成，超时后取消剩下的请求
+     * @param timeout 最多等待的时间
+     * @param unit 时间单位
+     * @return 所有请求都完成或被取消后完成
+     */
+    CompletableFuture<Void> close(long timeout, TimeUnit unit) {
+        closed = true;
+        if (inFlight.isEmpty()) {
+            drained.complete(null);
+        }
+        return drained.completeOnTimeout(null, timeout, unit).thenRun(() -> {
+            for (RequestHandle<?> handle : inFlight) {
+                handle.cancel();
+            }
+        });
+    }
+}
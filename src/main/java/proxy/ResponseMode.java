@@ -0,0 +1,17 @@
+package proxy;
+
+/**
+ * 响应的处理方式，在bind时根据方法的结果类型和参数确定
+ */
+enum ResponseMode {
+    //聚合完整的响应后解码为结果类型
+    AGGREGATE,
+    //以Flow.Publisher<ByteBuf>的形式流式交给调用者
+    STREAM,
+    //流式写入到@Download参数指定的文件
+    DOWNLOAD,
+    //@Stream，每行一个json，以Flow.Publisher<T>发布
+    NDJSON,
+    //@Stream，Server-Sent Events，以Flow.Publisher<T>发布，可以断线重连
+    SSE
+}
@@ -0,0 +1,74 @@
+package proxy;
+
+import exceptions.NettyProxyException;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.kqueue.KQueue;
+import io.netty.channel.kqueue.KQueueDomainSocketChannel;
+import io.netty.channel.kqueue.KQueueEventLoopGroup;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * 连接目标地址使用的传输方式，由URL的scheme决定
+ */
+enum Transport {
+    /**
+     * http，NIO的TCP连接
+     */
+    TCP,
+    /**
+     * unix://，unix domain socket，需要epoll或kqueue的native传输
+     */
+    DOMAIN_SOCKET,
+    /**
+     * local://，同一个JVM中的LocalServerChannel，主要用于测试及进程内的服务
+     */
+    LOCAL;
+
+    /**
+     * @param scheme URL的scheme，已经转为小写
+     * @return scheme对应的传输方式
+     * @throws NettyProxyException 是unix://但当前平台没有可用的native传输
+     */
+    static Transport of(String scheme) throws NettyProxyException {
+        switch (scheme) {
+            case "unix":
+                if (!Epoll.isAvailable() && !KQueue.isAvailable()) {
+                    throw new NettyProxyException("unix domain socket requires the epoll or kqueue native transport : "
+                            + Epoll.unavailabilityCause());
+                }
+                return DOMAIN_SOCKET;
+            case "local":
+                return LOCAL;
+            default:
+                return TCP;
+        }
+    }
+
+    /**
+     * @return 连接使用的channel类型
+     */
+    Class<? extends Channel> channelClass() {
+        switch (this) {
+            case DOMAIN_SOCKET:
+                return Epoll.isAvailable() ? EpollDomainSocketChannel.class : KQueueDomainSocketChannel.class;
+            case LOCAL:
+                return LocalChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+
+    /**
+     * 创建domain socket使用的native event loop
+     * @param threads 线程数，为0时使用netty默认的线程数
+     * @return epoll可用时为EpollEventLoopGroup，否则为KQueueEventLoopGroup
+     */
+    static EventLoopGroup newDomainSocketGroup(int threads) {
+        return Epoll.isAvailable() ? new EpollEventLoopGroup(threads) : new KQueueEventLoopGroup(threads);
+    }
+}
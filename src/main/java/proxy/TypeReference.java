@@ -0,0 +1,24 @@
+package proxy;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * 通过匿名子类保留泛型的实际类型，例如 new TypeReference&lt;List&lt;User&gt;&gt;(){}.getType()
+ * @param <T> 需要保留的类型
+ */
+public abstract class TypeReference<T> {
+    private final Type type;
+
+    protected TypeReference() {
+        Type superclass = getClass().getGenericSuperclass();
+        if (!(superclass instanceof ParameterizedType)) {
+            throw new IllegalStateException("TypeReference must be created with a type argument");
+        }
+        this.type = ((ParameterizedType) superclass).getActualTypeArguments()[0];
+    }
+
+    public Type getType() {
+        return type;
+    }
+}
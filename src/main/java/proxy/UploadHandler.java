@@ -0,0 +1,131 @@
+package proxy;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 紧跟在HttpClientCodec之后，控制multipart及流式请求体的写出，每个请求一个实例
+ * 带Expect: 100-continue时先只写出请求首部，收到100 Continue或等待超时后才写出请求体；
+ * 请求体写完之前收到最终响应（例如401、413）时不再写出剩余部分，响应照常交给后面的handler处理，之后连接被关闭
+ */
+final class UploadHandler extends ChannelInboundHandlerAdapter {
+    private enum State {
+        //请求体还没有开始写出
+        WAITING,
+        //请求体交给了ChunkedWriteHandler
+        STREAMING,
+        //已经收到最终响应，剩余的请求体被丢弃
+        FINISHED
+    }
+
+    private final ChunkedInput<HttpContent> body;
+    private final boolean expectContinue;
+    private final long timeoutMillis;
+
+    private State state = State.WAITING;
+    private ScheduledFuture<?> timeout;
+
+    //100 Continue之后解码器产生的空LastHttpContent需要一起丢弃
+    private boolean skipContent = false;
+
+    /**
+     * @param body 请求体
+     * @param expectContinue 请求是否带有Expect: 100-continue
+     * @param timeoutMillis 没有收到100 Continue时最多等待的毫秒数
+     */
+    UploadHandler(ChunkedInput<HttpContent> body, boolean expectContinue, long timeoutMillis) {
+        this.body = body;
+        this.expectContinue = expectContinue;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    boolean expectContinue() {
+        return expectContinue;
+    }
+
+    /**
+     * 请求首部已经写出，等待100 Continue，超时后直接写出请求体
+     * @param channel 请求的连接，只能在它的event loop中调用
+     */
+    void awaitContinue(Channel channel) {
+        if (state == State.WAITING) {
+            timeout = channel.eventLoop().schedule(() -> {
+                writeBody(channel);
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 开始写出请求体，已经开始或已经收到最终响应时什么也不做
+     * @param channel 请求的连接，只能在它的event loop中调用
+     * @return 请求体写出的future，没有写出时为null
+     */
+    ChannelFuture writeBody(Channel channel) {
+        if (state != State.WAITING) {
+            return null;
+        }
+        state = State.STREAMING;
+        cancelTimeout();
+        return channel.writeAndFlush(body).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpResponse) {
+            if (((HttpResponse) msg).status().equals(HttpResponseStatus.CONTINUE)) {
+                ReferenceCountUtil.release(msg);
+                skipContent = true;
+                writeBody(ctx.channel());
+                return;
+            }
+            if (state != State.FINISHED) {
+                //服务端已经给出最终响应，不再上传剩余的部分，ChunkedWriteHandler看到输入结束后停止写出
+                state = State.FINISHED;
+                cancelTimeout();
+                closeBody();
+            }
+        } else if (skipContent && msg instanceof LastHttpContent) {
+            ReferenceCountUtil.release(msg);
+            skipContent = false;
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        cancelTimeout();
+        if (state == State.WAITING) {
+            //请求体从未交给ChunkedWriteHandler，需要自己释放
+            state = State.FINISHED;
+            closeBody();
+        }
+        super.channelInactive(ctx);
+    }
+
+    private void closeBody() {
+        try {
+            body.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+    }
+}
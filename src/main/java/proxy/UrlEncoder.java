@@ -0,0 +1,93 @@
+package proxy;
+
+/**
+ * URL百分号编码工具，直接把编码结果追加到StringBuilder中，不产生中间对象
+ * 路径和查询参数的保留字符不同，需要分别编码
+ */
+public final class UrlEncoder {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    //路径段中不需要编码的字符，'/'需要编码，否则会改变路径的层级
+    private static final boolean[] PATH_SAFE = new boolean[128];
+
+    //查询参数中不需要编码的字符，'&' '=' '+' '#'都需要编码
+    private static final boolean[] QUERY_SAFE = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            PATH_SAFE[c] = QUERY_SAFE[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            PATH_SAFE[c] = QUERY_SAFE[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            PATH_SAFE[c] = QUERY_SAFE[c] = true;
+        }
+        for (char c : "-._~".toCharArray()) {
+            PATH_SAFE[c] = QUERY_SAFE[c] = true;
+        }
+        for (char c : "!$&'()*+,;=:@".toCharArray()) {
+            PATH_SAFE[c] = true;
+        }
+        for (char c : "!$'()*,;:@/?".toCharArray()) {
+            QUERY_SAFE[c] = true;
+        }
+    }
+
+    private UrlEncoder() {
+    }
+
+    /**
+     * 以路径段的规则编码
+     * @param builder 编码结果追加到的builder
+     * @param value 需要编码的值
+     */
+    public static void appendPath(StringBuilder builder, CharSequence value) {
+        append(builder, value, PATH_SAFE);
+    }
+
+    /**
+     * 以查询参数的规则编码，可用于参数名和参数值
+     * @param builder 编码结果追加到的builder
+     * @param value 需要编码的值
+     */
+    public static void appendQuery(StringBuilder builder, CharSequence value) {
+        append(builder, value, QUERY_SAFE);
+    }
+
+    private static void append(StringBuilder builder, CharSequence value, boolean[] safe) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (safe[c]) {
+                    builder.append(c);
+                } else {
+                    appendByte(builder, c);
+                }
+            } else if (c < 0x800) {
+                appendByte(builder, 0xC0 | (c >> 6));
+                appendByte(builder, 0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    appendByte(builder, 0xF0 | (codePoint >> 18));
+                    appendByte(builder, 0x80 | ((codePoint >> 12) & 0x3F));
+                    appendByte(builder, 0x80 | ((codePoint >> 6) & 0x3F));
+                    appendByte(builder, 0x80 | (codePoint & 0x3F));
+                } else {
+                    //不成对的代理字符，与UTF-8编码器一样以'?'代替
+                    appendByte(builder, '?');
+                }
+            } else {
+                appendByte(builder, 0xE0 | (c >> 12));
+                appendByte(builder, 0x80 | ((c >> 6) & 0x3F));
+                appendByte(builder, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static void appendByte(StringBuilder builder, int b) {
+        builder.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+}
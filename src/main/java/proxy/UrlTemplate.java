@@ -0,0 +1,201 @@
+package proxy;
+
+import annotation.param.PathVariable;
+import annotation.param.RequestParam;
+import exceptions.NettyProxyException;
+import exceptions.ParamException;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编译后的URL模板，在bind的时候把路径中的{var}和方法参数对应起来，
+ * 调用时只需要按顺序把参数编码后追加到一个预分配大小的StringBuilder中
+ */
+final class UrlTemplate {
+    //每个路径变量预留的长度
+    private static final int VARIABLE_SIZE_HINT = 16;
+
+    //literals[i]是第i个路径变量之前的固定内容，最后一个元素是最后一个路径变量之后的内容
+    private final String[] literals;
+
+    //每个路径变量对应的方法参数下标
+    private final int[] pathArgs;
+
+    //已经编码过的查询参数名
+    private final String[] queryNames;
+
+    //每个查询参数对应的方法参数下标
+    private final int[] queryArgs;
+
+    //模板中的路径是否已经带有查询参数
+    private final boolean hasQuery;
+
+    private final int sizeHint;
+
+    private UrlTemplate(String[] literals, int[] pathArgs, String[] queryNames, int[] queryArgs) {
+        this.literals = literals;
+        this.pathArgs = pathArgs;
+        this.queryNames = queryNames;
+        this.queryArgs = queryArgs;
+        this.hasQuery = literals[literals.length - 1].indexOf('?') >= 0;
+
+        int size = 0;
+        for (String literal : literals) {
+            size += literal.length();
+        }
+        for (String name : queryNames) {
+            size += name.length() + 2;
+        }
+        this.sizeHint = size + (pathArgs.length + queryArgs.length) * VARIABLE_SIZE_HINT;
+    }
+
+    /**
+     * 编译URL模板
+     * @param path 请求路径，可以包含{var}形式的路径变量
+     * @param parameterAnnotations 方法参数上的注解，用于找到路径变量和查询参数对应的参数
+     * @return 编译后的模板
+     * @throws NettyProxyException 路径变量找不到对应的参数
+     */
+    static UrlTemplate compile(String path, Annotation[][] parameterAnnotations) throws NettyProxyException {
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            path = "/" + path;
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> pathArgs = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = path.indexOf('{', start)) >= 0) {
+            int close = path.indexOf('}', open);
+            if (close < 0) {
+                throw new NettyProxyException("Unclosed path variable in \"" + path + "\"");
+            }
+            String name = path.substring(open + 1, close);
+            literals.add(path.substring(start, open));
+            pathArgs.add(findPathVariable(name, path, parameterAnnotations));
+            start = close + 1;
+        }
+        literals.add(path.substring(start));
+
+        List<String> queryNames = new ArrayList<>();
+        List<Integer> queryArgs = new ArrayList<>();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof RequestParam) {
+                    StringBuilder name = new StringBuilder();
+                    UrlEncoder.appendQuery(name, ((RequestParam) annotation).value());
+                    queryNames.add(name.toString());
+                    queryArgs.add(i);
+                }
+            }
+        }
+
+        return new UrlTemplate(literals.toArray(new String[0]), toArray(pathArgs),
+                queryNames.toArray(new String[0]), toArray(queryArgs));
+    }
+
+    /**
+     * 连接两段路径，保证中间恰好有一个'/'，例如 "api" 和 "users" 连接为 "/api/users"
+     * child为空或以'?'开头时直接追加
+     * @param parent 父路径，可以为空
+     * @param child 子路径，可以为空
+     * @return 连接后的路径
+     */
+    static String join(String parent, String child) {
+        if (child.isEmpty() || child.charAt(0) == '?') {
+            return parent + child;
+        }
+        boolean slashEnd = parent.endsWith("/");
+        boolean slashStart = child.charAt(0) == '/';
+        if (slashEnd && slashStart) {
+            return parent + child.substring(1);
+        }
+        if (!slashEnd && !slashStart) {
+            return parent + "/" + child;
+        }
+        return parent + child;
+    }
+
+    /**
+     * 根据实际参数展开模板，得到请求的URI
+     * @param args 方法的实际参数
+     * @return 路径及查询参数，已经过百分号编码
+     * @throws ParamException 路径变量的值为null
+     */
+    String expand(Object[] args) throws ParamException {
+        StringBuilder uri = new StringBuilder(sizeHint);
+        for (int i = 0; i < pathArgs.length; i++) {
+            uri.append(literals[i]);
+            Object value = args[pathArgs[i]];
+            if (value == null) {
+                throw new ParamException("Path variable can not be null");
+            }
+            UrlEncoder.appendPath(uri, value.toString());
+        }
+        uri.append(literals[pathArgs.length]);
+
+        char separator = hasQuery ? '&' : '?';
+        for (int i = 0; i < queryArgs.length; i++) {
+            separator = appendQuery(uri, separator, queryNames[i], args[queryArgs[i]]);
+        }
+        return uri.toString();
+    }
+
+    /**
+     * 追加一个查询参数，集合和数组会展开为多个同名参数，null被忽略
+     * @param uri 正在拼接的URI
+     * @param separator 下一个参数之前的分隔符
+     * @param name 已经编码过的参数名
+     * @param value 参数值
+     * @return 再下一个参数之前的分隔符
+     */
+    static char appendQuery(StringBuilder uri, char separator, String name, Object value) {
+        if (value == null) {
+            return separator;
+        }
+        if (value instanceof Iterable) {
+            for (Object element : (Iterable<?>) value) {
+                separator = appendQueryValue(uri, separator, name, element);
+            }
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            for (int j = 0; j < length; j++) {
+                separator = appendQueryValue(uri, separator, name, Array.get(value, j));
+            }
+        } else {
+            separator = appendQueryValue(uri, separator, name, value);
+        }
+        return separator;
+    }
+
+    private static char appendQueryValue(StringBuilder uri, char separator, String name, Object value) {
+        if (value == null) {
+            return separator;
+        }
+        uri.append(separator).append(name).append('=');
+        UrlEncoder.appendQuery(uri, value.toString());
+        return '&';
+    }
+
+    private static int findPathVariable(String name, String path, Annotation[][] parameterAnnotations) {
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof PathVariable && ((PathVariable) annotation).value().equals(name)) {
+                    return i;
+                }
+            }
+        }
+        throw new NettyProxyException("No @PathVariable(\"" + name + "\") parameter for \"" + path + "\"");
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,29 @@
+package trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 把span保存在内存中，用于测试
+ */
+public class InMemorySpanSink implements SpanSink {
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void export(Span span) {
+        spans.add(span);
+    }
+
+    /**
+     * @return 按导出顺序排列的所有span
+     */
+    public List<Span> spans() {
+        return new ArrayList<>(spans);
+    }
+
+    public void clear() {
+        spans.clear();
+    }
+}
@@ -0,0 +1,25 @@
+package trace;
+
+/**
+ * 一次请求依次经过的阶段，每个阶段从上一个已记录的阶段结束时开始
+ */
+public enum Phase {
+    //编码请求体之后到请求构建完成
+    BUILD,
+    //等待event loop、解析域名及建立TCP连接
+    CONNECT,
+    //执行请求拦截器
+    INTERCEPT,
+    //请求写出到socket
+    WRITE,
+    //请求写出后等待服务端返回响应首部
+    SERVER,
+    //读取响应体
+    READ,
+    //编解码器解码响应
+    DECODE,
+    //回调在回调线程中开始执行之前的排队
+    DISPATCH,
+    //执行回调
+    CALLBACK
+}
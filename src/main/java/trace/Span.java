@@ -0,0 +1,176 @@
+package trace;
+
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一次请求的span，记录各阶段结束的时间戳，并通过W3C traceparent首部向服务端传播
+ * 阶段由连接的event loop及回调线程依次记录，导出之后不再修改
+ */
+public final class Span {
+    public static final String TRACEPARENT = "traceparent";
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final String name;
+    private final long startMillis;
+    private final long startNanos;
+
+    private String traceId;
+    private String spanId;
+    private String parentId;
+    private String flags = "01";
+
+    //各阶段结束时的System.nanoTime()，0表示没有经过这个阶段
+    private final long[] marks = new long[PHASES.length];
+    private volatile int status;
+    private volatile Throwable error;
+    private volatile boolean ended;
+
+    /**
+     * @param name span的名称，通常是请求方法及路径
+     */
+    public Span(String name) {
+        this.name = name;
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.traceId = hex(random.nextLong()) + hex(random.nextLong());
+        this.spanId = hex(random.nextLong());
+    }
+
+    /**
+     * 写入traceparent首部，请求中已有合法的traceparent时加入其所在的trace，作为其子span
+     * @param headers 请求的首部
+     */
+    public void inject(HttpHeaders headers) {
+        String parent = headers.get(TRACEPARENT);
+        //00-<32位trace-id>-<16位parent-id>-<2位flags>
+        if (parent != null && parent.length() == 55 && parent.startsWith("00-")
+                && parent.charAt(35) == '-' && parent.charAt(52) == '-') {
+            traceId = parent.substring(3, 35);
+            parentId = parent.substring(36, 52);
+            flags = parent.substring(53, 55);
+        }
+        headers.set(TRACEPARENT, traceparent());
+    }
+
+    /**
+     * @return 当前span的traceparent
+     */
+    public String traceparent() {
+        return "00-" + traceId + "-" + spanId + "-" + flags;
+    }
+
+    /**
+     * 记录一个阶段的结束
+     * @param phase 刚结束的阶段
+     */
+    public void mark(Phase phase) {
+        if (!ended) {
+            marks[phase.ordinal()] = System.nanoTime();
+        }
+    }
+
+    /**
+     * 记录响应的状态码
+     */
+    public void status(int status) {
+        this.status = status;
+    }
+
+    /**
+     * 结束span
+     * @param error 请求失败的原因，成功时为null
+     * @return 第一次结束时返回true，应由调用者导出
+     */
+    public boolean end(Throwable error) {
+        if (ended) {
+            return false;
+        }
+        this.error = error;
+        ended = true;
+        return true;
+    }
+
+    /**
+     * @param phase 阶段
+     * @return 阶段的耗时，单位纳秒，没有经过这个阶段时为-1
+     */
+    public long duration(Phase phase) {
+        long end = marks[phase.ordinal()];
+        if (end == 0) {
+            return -1;
+        }
+        long start = startNanos;
+        for (int i = phase.ordinal() - 1; i >= 0; i--) {
+            if (marks[i] != 0) {
+                start = marks[i];
+                break;
+            }
+        }
+        return end - start;
+    }
+
+    /**
+     * @return 从开始到最后一个已记录阶段的总耗时，单位纳秒
+     */
+    public long totalNanos() {
+        long last = startNanos;
+        for (long mark : marks) {
+            last = Math.max(last, mark);
+        }
+        return last - startNanos;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long startMillis() {
+        return startMillis;
+    }
+
+    public String traceId() {
+        return traceId;
+    }
+
+    public String spanId() {
+        return spanId;
+    }
+
+    /**
+     * @return 父span的id，没有时为null
+     */
+    public String parentId() {
+        return parentId;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public Throwable error() {
+        return error;
+    }
+
+    private static String hex(long value) {
+        String hex = Long.toHexString(value);
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(name).append(" ").append(traceparent())
+                .append(" status=").append(status);
+        for (Phase phase : PHASES) {
+            long duration = duration(phase);
+            if (duration >= 0) {
+                builder.append(" ").append(phase.name().toLowerCase()).append("=").append(duration / 1000).append("us");
+            }
+        }
+        return builder.toString();
+    }
+}
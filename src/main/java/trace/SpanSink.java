@@ -0,0 +1,9 @@
+package trace;
+
+/**
+ * 接收已完成的span，例如转发给OpenTelemetry或Zipkin的exporter
+ * 在执行回调的线程中调用，不能阻塞
+ */
+public interface SpanSink {
+    void export(Span span);
+}
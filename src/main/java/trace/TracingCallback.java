@@ -0,0 +1,51 @@
+package trace;
+
+import callback.HttpCallback;
+
+/**
+ * 记录回调的排队及执行时间，回调返回后导出span
+ * 包装在用户的回调外，再交给回调线程执行
+ * @param <T> 响应的类型
+ */
+public class TracingCallback<T> implements HttpCallback<T> {
+    private final HttpCallback<T> callback;
+    private final Span span;
+    private final SpanSink sink;
+
+    public TracingCallback(HttpCallback<T> callback, Span span, SpanSink sink) {
+        this.callback = callback;
+        this.span = span;
+        this.sink = sink;
+    }
+
+    @Override
+    public void onSuccess(T response) {
+        span.mark(Phase.DISPATCH);
+        try {
+            callback.onSuccess(response);
+        } finally {
+            span.mark(Phase.CALLBACK);
+            end(null);
+        }
+    }
+
+    @Override
+    public void onFailed(int code, String message, Exception e) {
+        span.mark(Phase.DISPATCH);
+        if (span.status() == 0) {
+            span.status(code);
+        }
+        try {
+            callback.onFailed(code, message, e);
+        } finally {
+            span.mark(Phase.CALLBACK);
+            end(e);
+        }
+    }
+
+    private void end(Throwable error) {
+        if (span.end(error)) {
+            sink.export(span);
+        }
+    }
+}
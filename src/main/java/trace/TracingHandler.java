@@ -0,0 +1,29 @@
+package trace;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+
+/**
+ * 紧跟在HttpClientCodec之后，记录收到响应首部及响应体读取完成的时间
+ */
+public class TracingHandler extends ChannelInboundHandlerAdapter {
+    private final Span span;
+
+    public TracingHandler(Span span) {
+        this.span = span;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpResponse) {
+            span.mark(Phase.SERVER);
+            span.status(((HttpResponse) msg).status().code());
+        }
+        if (msg instanceof LastHttpContent) {
+            span.mark(Phase.READ);
+        }
+        ctx.fireChannelRead(msg);
+    }
+}
@@ -0,0 +1,109 @@
+package callback;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CallbackExecutorsTest {
+    @Test
+    public void eventLoopKeepsOriginalCallback() {
+        HttpCallback<String> callback = new RecordingCallback();
+        assertSame(callback, CallbackExecutors.dispatch(callback, CallbackExecutors.eventLoop()));
+        assertSame(callback, CallbackExecutors.dispatch(callback, null));
+    }
+
+    @Test
+    public void dispatchesToExecutorThread() throws Exception {
+        ExecutorService executor = CallbackExecutors.bounded(1, 16);
+        RecordingCallback callback = new RecordingCallback();
+
+        CallbackExecutors.dispatch(callback, executor).onSuccess("ok");
+
+        assertNotSame(Thread.currentThread(), callback.thread.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void virtualThreadsFallBackWhenUnsupported() throws Exception {
+        ExecutorService executor = CallbackExecutors.virtualThreads();
+        RecordingCallback callback = new RecordingCallback();
+
+        CallbackExecutors.dispatch(callback, executor).onFailed(500, "failed", null);
+
+        assertNotNull(callback.thread.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void rejectedResponseIsReleasedAndFailedInline() {
+        Executor rejecting = runnable -> {
+            throw new RejectedExecutionException("shut down");
+        };
+        ByteBuf body = Unpooled.copiedBuffer("ok", StandardCharsets.UTF_8);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        CallbackExecutors.dispatch(new HttpCallback<ByteBuf>() {
+            @Override
+            public void onSuccess(ByteBuf response) {
+                fail("rejected response must not be delivered");
+            }
+
+            @Override
+            public void onFailed(int code, String message, Exception e) {
+                failure.set(e);
+            }
+        }, rejecting).onSuccess(body);
+
+        assertEquals(0, body.refCnt());
+        assertTrue(failure.get() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void callbackExceptionDoesNotReachExecutor() throws Exception {
+        ExecutorService executor = CallbackExecutors.bounded(1, 16);
+        CompletableFuture<Thread> next = new CompletableFuture<>();
+        HttpCallback<String> throwing = new HttpCallback<String>() {
+            @Override
+            public void onSuccess(String response) {
+                throw new IllegalStateException("callback failed");
+            }
+
+            @Override
+            public void onFailed(int code, String message, Exception e) {
+                next.complete(Thread.currentThread());
+            }
+        };
+        HttpCallback<String> dispatched = CallbackExecutors.dispatch(throwing, executor);
+
+        dispatched.onSuccess("ok");
+        dispatched.onFailed(500, "failed", null);
+
+        //抛出异常的回调没有终止执行回调的线程，之后的回调照常执行
+        assertNotNull(next.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    static class RecordingCallback implements HttpCallback<String> {
+        final CompletableFuture<Thread> thread = new CompletableFuture<>();
+
+        @Override
+        public void onSuccess(String response) {
+            thread.complete(Thread.currentThread());
+        }
+
+        @Override
+        public void onFailed(int code, String message, Exception e) {
+            thread.complete(Thread.currentThread());
+        }
+    }
+}
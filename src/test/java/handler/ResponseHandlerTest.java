@@ -0,0 +1,174 @@
+package handler;
+
+import callback.HttpCallback;
+import codec.GsonCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseHandlerTest {
+    @BeforeAll
+    static void paranoid() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @Test
+    public void releasesResponseOnSuccess() {
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        EmbeddedChannel channel = new EmbeddedChannel(new ResponseHandler<>(new GsonCodec(), callback, String.class));
+
+        FullHttpResponse response = response(HttpResponseStatus.OK, "hello");
+        channel.writeInbound(response);
+
+        assertEquals(0, response.refCnt());
+        assertEquals(1, callback.results.size());
+        assertEquals("hello", callback.results.get(0));
+        assertFalse(channel.isOpen());
+        assertTrue(callback.failures.isEmpty());
+    }
+
+    @Test
+    public void releasesResponseOnErrorStatus() {
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        EmbeddedChannel channel = new EmbeddedChannel(new ResponseHandler<>(new GsonCodec(), callback, String.class));
+
+        FullHttpResponse response = response(HttpResponseStatus.INTERNAL_SERVER_ERROR, "boom");
+        channel.writeInbound(response);
+
+        assertEquals(0, response.refCnt());
+        assertEquals(List.of(500), callback.failures);
+    }
+
+    @Test
+    public void releasesResponseOnDecoderFailure() {
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        EmbeddedChannel channel = new EmbeddedChannel(new ResponseHandler<>(new GsonCodec(), callback, String.class));
+
+        FullHttpResponse response = response(HttpResponseStatus.OK, "\"hello\"");
+        response.setDecoderResult(DecoderResult.failure(new IllegalStateException("bad")));
+        channel.writeInbound(response);
+
+        assertEquals(0, response.refCnt());
+        assertEquals(1, callback.failures.size());
+        assertTrue(callback.results.isEmpty());
+    }
+
+    @Test
+    public void releasesResponseWhenBodyCannotBeDecoded() {
+        RecordingCallback<Integer> callback = new RecordingCallback<>();
+        EmbeddedChannel channel = new EmbeddedChannel(new ResponseHandler<>(new GsonCodec(), callback, Integer.class));
+
+        FullHttpResponse response = response(HttpResponseStatus.OK, "{not json");
+        channel.writeInbound(response);
+
+        assertEquals(0, response.refCnt());
+        assertEquals(List.of(200), callback.failures);
+    }
+
+    @Test
+    public void passesRawBodiesWithoutDecoding() {
+        RecordingCallback<ByteBuf> buffers = new RecordingCallback<>();
+        EmbeddedChannel channel = new EmbeddedChannel(new ResponseHandler<>(new GsonCodec(), buffers, ByteBuf.class));
+        FullHttpResponse response = response(HttpResponseStatus.OK, "{not json");
+        channel.writeInbound(response);
+
+        //同一个缓冲区，由调用者释放
+        ByteBuf content = buffers.results.get(0);
+        assertSame(response.content(), content);
+        assertEquals("{not json", content.toString(StandardCharsets.UTF_8));
+        assertTrue(content.release());
+
+        RecordingCallback<byte[]> bytes = new RecordingCallback<>();
+        channel = new EmbeddedChannel(new ResponseHandler<>(new GsonCodec(), bytes, byte[].class));
+        channel.writeInbound(response(HttpResponseStatus.CREATED, "\u00ff"));
+        assertArrayEquals("\u00ff".getBytes(StandardCharsets.UTF_8), bytes.results.get(0));
+    }
+
+    @Test
+    public void responseWrapperCarriesStatusAndHeaders() throws Exception {
+        Type type = ResponseHandlerTest.class.getDeclaredMethod("wrapped").getGenericReturnType();
+        RecordingCallback<Response<Map<String, Integer>>> callback = new RecordingCallback<>();
+        EmbeddedChannel channel = new EmbeddedChannel(new ResponseHandler<>(new GsonCodec(), callback,
+                ResultAdapter.of(type), null));
+        FullHttpResponse response = response(HttpResponseStatus.NOT_FOUND, "missing");
+        response.headers().set("X-Request-Id", "42");
+        channel.writeInbound(response);
+
+        assertTrue(callback.failures.isEmpty());
+        Response<Map<String, Integer>> wrapped = callback.results.get(0);
+        assertEquals(404, wrapped.getCode());
+        assertFalse(wrapped.isSuccessful());
+        assertEquals("42", wrapped.getHeaders().get("X-Request-Id"));
+        assertNull(wrapped.getBody());
+        assertEquals("missing", wrapped.getErrorBody());
+
+        callback = new RecordingCallback<>();
+        channel = new EmbeddedChannel(new ResponseHandler<>(new GsonCodec(), callback, ResultAdapter.of(type), null));
+        channel.writeInbound(response(HttpResponseStatus.OK, "{\"a\":1}"));
+        assertEquals(1, callback.results.get(0).getBody().get("a"));
+    }
+
+    @SuppressWarnings("unused")
+    private static Response<Map<String, Integer>> wrapped() {
+        return null;
+    }
+
+    @Test
+    public void voidResultsDiscardBodies() {
+        RecordingCallback<Void> callback = new RecordingCallback<>();
+        EmbeddedChannel channel = new EmbeddedChannel(new BodyDiscarder(),
+                new ResponseHandler<>(new GsonCodec(), callback, Void.class));
+        HttpContent chunk = new DefaultHttpContent(response(HttpResponseStatus.OK, "ignored").content());
+        channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NO_CONTENT), chunk,
+                LastHttpContent.EMPTY_LAST_CONTENT);
+
+        assertEquals(0, chunk.refCnt());
+        assertEquals(1, callback.results.size());
+        assertNull(callback.results.get(0));
+    }
+
+    @Test
+    public void failsOnceWhenExceptionIsRaised() {
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        EmbeddedChannel channel = new EmbeddedChannel(new ResponseHandler<>(new GsonCodec(), callback, String.class));
+
+        channel.pipeline().fireExceptionCaught(new IllegalStateException("read timed out"));
+
+        assertFalse(channel.isOpen());
+        assertEquals(1, callback.failures.size());
+    }
+
+    private static FullHttpResponse response(HttpResponseStatus status, String body) {
+        ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer();
+        content.writeCharSequence(body, StandardCharsets.UTF_8);
+        return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, content);
+    }
+
+    static class RecordingCallback<T> implements HttpCallback<T> {
+        final List<T> results = new ArrayList<>();
+        final List<Integer> failures = new ArrayList<>();
+
+        @Override
+        public void onSuccess(T response) {
+            results.add(response);
+        }
+
+        @Override
+        public void onFailed(int code, String message, Exception e) {
+            failures.add(code);
+        }
+    }
+}
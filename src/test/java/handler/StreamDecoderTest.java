@@ -0,0 +1,74 @@
+package handler;
+
+import codec.GsonCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamDecoderTest {
+    static class Item {
+        int id;
+        String name;
+    }
+
+    @Test
+    public void decodesNdjsonAcrossChunks() {
+        NdjsonDecoder<Item> decoder = new NdjsonDecoder<>(new GsonCodec(), Item.class, 1024);
+        List<Item> out = new ArrayList<>();
+
+        byte[] bytes = "{\"id\":1,\"name\":\"中文\"}\n\n{\"id\":2,\"name\":\"b\"}\r\n{\"id\":3}".getBytes(StandardCharsets.UTF_8);
+        //在多字节字符中间切分
+        feed(decoder, out, Arrays.copyOfRange(bytes, 0, 18), Arrays.copyOfRange(bytes, 18, bytes.length));
+        decoder.finish(out);
+
+        assertEquals(3, out.size());
+        assertEquals("中文", out.get(0).name);
+        assertEquals(2, out.get(1).id);
+        assertEquals(3, out.get(2).id);
+    }
+
+    @Test
+    public void decodesServerSentEvents() {
+        ServerSentEventDecoder<ServerSentEvent> decoder =
+                new ServerSentEventDecoder<>(new GsonCodec(), ServerSentEvent.class, 1024, 3000);
+        List<ServerSentEvent> out = new ArrayList<>();
+
+        feed(decoder, out, ": comment\nretry: 500\nid: 7\nevent: update\ndata: line1\nda".getBytes(StandardCharsets.UTF_8),
+                "ta: line2\n\ndata:no-space\n\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, out.size());
+        assertEquals(new ServerSentEvent("7", "update", "line1\nline2"), out.get(0));
+        assertEquals(new ServerSentEvent("7", "message", "no-space"), out.get(1));
+        assertEquals("7", decoder.lastEventId());
+        assertEquals(500, decoder.retryMillis());
+    }
+
+    @Test
+    public void decodesServerSentEventDataAsJson() {
+        ServerSentEventDecoder<Item> decoder = new ServerSentEventDecoder<>(new GsonCodec(), Item.class, 1024, 3000);
+        List<Item> out = new ArrayList<>();
+
+        feed(decoder, out, "data: {\"id\":5}\n\ndata: {\"id\":6}".getBytes(StandardCharsets.UTF_8));
+        decoder.finish(out);
+
+        //最后一个事件没有以空行结束，被丢弃
+        assertEquals(1, out.size());
+        assertEquals(5, out.get(0).id);
+    }
+
+    @SafeVarargs
+    private static <E> void feed(ContentDecoder<E> decoder, List<E> out, byte[]... chunks) {
+        for (byte[] chunk : chunks) {
+            ByteBuf buf = Unpooled.wrappedBuffer(chunk);
+            decoder.decode(buf, out);
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package handler;
+
+import callback.HttpCallback;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingResponseHandlerTest {
+    @BeforeAll
+    static void paranoid() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @Test
+    public void deliversChunksOnDemand() {
+        PublisherCallback callback = new PublisherCallback();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new StreamingResponseHandler<>(callback, ContentDecoder.bytes()));
+
+        channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        assertNotNull(callback.publisher);
+
+        HttpContent first = content("a", false);
+        HttpContent second = content("b", false);
+        HttpContent last = content("c", true);
+        channel.writeInbound(first, second, last);
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        callback.publisher.subscribe(subscriber);
+        channel.runPendingTasks();
+        assertTrue(subscriber.items.isEmpty());
+
+        subscriber.subscription.request(2);
+        channel.runPendingTasks();
+        assertEquals(List.of("a", "b"), subscriber.items);
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(1);
+        channel.runPendingTasks();
+        assertEquals(List.of("a", "b", "c"), subscriber.items);
+        assertTrue(subscriber.completed);
+        assertEquals(0, first.refCnt());
+        assertEquals(0, last.refCnt());
+    }
+
+    @Test
+    public void cancelReleasesBufferedChunks() {
+        PublisherCallback callback = new PublisherCallback();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new StreamingResponseHandler<>(callback, ContentDecoder.bytes()));
+
+        channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        HttpContent chunk = content("a", false);
+        channel.writeInbound(chunk);
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        callback.publisher.subscribe(subscriber);
+        channel.runPendingTasks();
+        subscriber.subscription.cancel();
+        channel.runPendingTasks();
+
+        assertEquals(0, chunk.refCnt());
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void acceptsAnySuccessStatus() {
+        PublisherCallback callback = new PublisherCallback();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new StreamingResponseHandler<>(callback, ContentDecoder.bytes()));
+
+        channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.PARTIAL_CONTENT));
+        HttpContent last = content("a", true);
+        channel.writeInbound(last);
+
+        assertNotNull(callback.publisher);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        callback.publisher.subscribe(subscriber);
+        channel.runPendingTasks();
+        subscriber.subscription.request(1);
+        channel.runPendingTasks();
+        assertEquals(List.of("a"), subscriber.items);
+        assertTrue(subscriber.completed);
+        assertEquals(0, last.refCnt());
+    }
+
+    @Test
+    public void failsOnErrorStatus() {
+        PublisherCallback callback = new PublisherCallback();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new StreamingResponseHandler<>(callback, ContentDecoder.bytes()));
+
+        channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND));
+
+        assertNull(callback.publisher);
+        assertEquals(404, callback.failedCode);
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void downloadsToFile() throws Exception {
+        Path path = Files.createTempFile("download", ".bin");
+        CompletableFuture<Path> written = new CompletableFuture<>();
+        FileDownloadCallback<Path> download = new FileDownloadCallback<>(path, path, new HttpCallback<Path>() {
+            @Override
+            public void onSuccess(Path response) {
+                written.complete(response);
+            }
+
+            @Override
+            public void onFailed(int code, String message, Exception e) {
+                written.completeExceptionally(e);
+            }
+        });
+        EmbeddedChannel channel = new EmbeddedChannel(new StreamingResponseHandler<>(download, ContentDecoder.bytes()));
+
+        HttpContent first = content("hello ", false);
+        HttpContent last = content("world", true);
+        channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK), first, last);
+        //每块在文件IO的线程中写完后才请求下一块，请求由event loop处理
+        for (int i = 0; i < 250 && !written.isDone(); i++) {
+            channel.runPendingTasks();
+            Thread.sleep(20);
+        }
+
+        assertEquals(path, written.get(5, TimeUnit.SECONDS));
+        assertEquals("hello world", new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        assertEquals(0, first.refCnt());
+        assertEquals(0, last.refCnt());
+        Files.delete(path);
+    }
+
+    private static HttpContent content(String text, boolean last) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        buf.writeCharSequence(text, StandardCharsets.UTF_8);
+        return last ? new DefaultLastHttpContent(buf) : new DefaultHttpContent(buf);
+    }
+
+    static class PublisherCallback implements HttpCallback<Flow.Publisher<ByteBuf>> {
+        Flow.Publisher<ByteBuf> publisher;
+        int failedCode;
+
+        @Override
+        public void onSuccess(Flow.Publisher<ByteBuf> response) {
+            publisher = response;
+        }
+
+        @Override
+        public void onFailed(int code, String message, Exception e) {
+            failedCode = code;
+        }
+    }
+
+    static class RecordingSubscriber implements Flow.Subscriber<ByteBuf> {
+        Flow.Subscription subscription;
+        final List<String> items = new ArrayList<>();
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuf item) {
+            items.add(item.toString(StandardCharsets.UTF_8));
+            item.release();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
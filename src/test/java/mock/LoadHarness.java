@@ -0,0 +1,115 @@
+package mock;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 负载生成器：多个线程按固定的速率调用绑定的接口，统计吞吐量、延迟分位数及内存分配速率
+ * 第i个请求计划在开始后i个间隔发出，延迟从计划时间算起，线程不够用时排队的时间也计入延迟
+ */
+public final class LoadHarness {
+    private final int threads;
+    private final double requestsPerSecond;
+    private final Duration duration;
+
+    //开始计时之前在当前线程执行的调用次数，避免类加载及JIT计入结果
+    private int warmUpCalls;
+
+    /**
+     * @param threads 调用的线程数，同步调用时决定了最大并发
+     * @param requestsPerSecond 目标速率
+     * @param duration 持续时间
+     */
+    public LoadHarness(int threads, double requestsPerSecond, Duration duration) {
+        this.threads = threads;
+        this.requestsPerSecond = requestsPerSecond;
+        this.duration = duration;
+    }
+
+    /**
+     * @param calls 开始计时之前执行的调用次数，失败的调用被忽略
+     * @return 负载生成器本身
+     */
+    public LoadHarness warmUp(int calls) {
+        this.warmUpCalls = calls;
+        return this;
+    }
+
+    /**
+     * @param call 一次请求，抛出异常时计为失败
+     * @return 统计结果
+     */
+    public LoadReport run(Callable<?> call) throws InterruptedException {
+        for (int i = 0; i < warmUpCalls; i++) {
+            try {
+                call.call();
+            } catch (Exception ignored) {
+            }
+        }
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        int total = (int) (duration.toNanos() / intervalNanos);
+        long[] latencies = new long[total];
+        AtomicLong next = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong workerAllocated = new AtomicLong();
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<Long, Long> before = allocatedBytes(threadBean);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                long allocated = threadBean.getCurrentThreadAllocatedBytes();
+                for (long i = next.getAndIncrement(); i < total; i = next.getAndIncrement()) {
+                    long scheduled = start + i * intervalNanos;
+                    for (long wait = scheduled - System.nanoTime(); wait > 0; wait = scheduled - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    try {
+                        call.call();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[(int) i] = System.nanoTime() - scheduled;
+                }
+                workerAllocated.addAndGet(threadBean.getCurrentThreadAllocatedBytes() - allocated);
+            }, "load-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        //event loop等已有线程的分配，加上负载线程自己统计的分配
+        long allocated = workerAllocated.get();
+        for (Map.Entry<Long, Long> entry : allocatedBytes(threadBean).entrySet()) {
+            allocated += entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+        }
+
+        Arrays.sort(latencies);
+        return new LoadReport(total, errors.get(), elapsed, latencies, allocated);
+    }
+
+    private static Map<Long, Long> allocatedBytes(com.sun.management.ThreadMXBean threadBean) {
+        long[] ids = threadBean.getAllThreadIds();
+        long[] bytes = threadBean.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+}
@@ -0,0 +1,40 @@
+package mock;
+
+import annotation.method.Get;
+import org.junit.jupiter.api.Test;
+import proxy.NettyProxy;
+import proxy.NettyRequest;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadHarnessTest {
+    interface Api {
+        @Get("/ping")
+        NettyRequest<String> ping();
+    }
+
+    @Test
+    public void drivesBoundInterfaceAtTargetRate() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.text("pong"));
+            NettyProxy proxy = new NettyProxy();
+            proxy.baseUrl(server.baseUrl());
+            Api api = (Api) proxy.bind(Api.class);
+
+            LoadReport report = new LoadHarness(8, 200, Duration.ofSeconds(1)).warmUp(20)
+                    .run(() -> api.ping().execute());
+
+            assertEquals(200, report.requests(), report.toString());
+            assertEquals(0, report.errors(), report.toString());
+            assertEquals(220, server.requestCount());
+            assertTrue(report.throughput() > 50, report.toString());
+            assertTrue(report.percentile(0.5) > 0, report.toString());
+            assertTrue(report.percentile(0.5) <= report.percentile(0.9));
+            assertTrue(report.percentile(0.9) <= report.percentile(0.99));
+            assertTrue(report.percentile(0.99) <= report.percentile(1));
+            assertTrue(report.allocatedBytes() > 0, report.toString());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package mock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoadHarness的统计结果，延迟的单位都是纳秒
+ */
+public final class LoadReport {
+    private final long requests;
+    private final long errors;
+    private final long elapsedNanos;
+    //升序排列的每个请求的延迟
+    private final long[] latencies;
+    private final long allocatedBytes;
+
+    LoadReport(long requests, long errors, long elapsedNanos, long[] latencies, long allocatedBytes) {
+        this.requests = requests;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public long requests() {
+        return requests;
+    }
+
+    public long errors() {
+        return errors;
+    }
+
+    /**
+     * @return 每秒完成的请求数
+     */
+    public double throughput() {
+        return requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @param quantile 0到1之间，例如0.99
+     * @return 延迟的分位数
+     */
+    public long percentile(double quantile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * latencies.length) - 1;
+        return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+    }
+
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return 每秒分配的字节数
+     */
+    public double allocationRate() {
+        return allocatedBytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests, %d errors, %.1f req/s, latency p50=%dus p90=%dus p99=%dus p99.9=%dus"
+                        + " max=%dus, allocated %.1f MB/s (%d B/req)",
+                requests, errors, throughput(), micros(0.5), micros(0.9), micros(0.99), micros(0.999), micros(1),
+                allocationRate() / (1024 * 1024), requests == 0 ? 0 : allocatedBytes / requests);
+    }
+
+    private long micros(double quantile) {
+        return TimeUnit.NANOSECONDS.toMicros(percentile(quantile));
+    }
+}
@@ -0,0 +1,130 @@
+package mock;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * MockServer返回的响应，配置好之后可以被多个连接共享
+ */
+public final class MockResponse {
+    private HttpResponseStatus status = HttpResponseStatus.OK;
+    private final HttpHeaders headers = new DefaultHttpHeaders();
+    private byte[] body = new byte[0];
+
+    //发送响应首部之前等待的毫秒数
+    private long delayMillis;
+
+    //分块发送时每块的字节数及块之间等待的毫秒数，块大小为0时按Content-Length一次发送
+    private int chunkSize;
+    private long chunkDelayMillis;
+
+    //不发送响应，直接以RST断开连接
+    private boolean reset;
+
+    /**
+     * @param json json格式的响应体
+     * @return 200的json响应
+     */
+    public static MockResponse ok(String json) {
+        return new MockResponse().header(HttpHeaderNames.CONTENT_TYPE.toString(), "application/json").body(json);
+    }
+
+    /**
+     * @param text 文本格式的响应体
+     * @return 200的文本响应
+     */
+    public static MockResponse text(String text) {
+        return new MockResponse().header(HttpHeaderNames.CONTENT_TYPE.toString(), "text/plain; charset=UTF-8").body(text);
+    }
+
+    /**
+     * @return 收到请求后以RST断开连接的响应
+     */
+    public static MockResponse reset() {
+        MockResponse response = new MockResponse();
+        response.reset = true;
+        return response;
+    }
+
+    /**
+     * @param size 字节数
+     * @return 响应体为size个'a'的文本响应
+     */
+    public static MockResponse large(int size) {
+        byte[] body = new byte[size];
+        Arrays.fill(body, (byte) 'a');
+        return text("").body(body);
+    }
+
+    public MockResponse status(int code) {
+        this.status = HttpResponseStatus.valueOf(code);
+        return this;
+    }
+
+    public MockResponse header(String key, String value) {
+        headers.add(key, value);
+        return this;
+    }
+
+    public MockResponse body(String body) {
+        return body(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public MockResponse body(byte[] body) {
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * 注入延迟
+     * @param millis 发送响应首部之前等待的毫秒数
+     */
+    public MockResponse delay(long millis) {
+        this.delayMillis = millis;
+        return this;
+    }
+
+    /**
+     * 使用Transfer-Encoding: chunked分块发送响应体
+     * @param size 每块的字节数
+     * @param delayMillis 块之间等待的毫秒数
+     */
+    public MockResponse chunked(int size, long delayMillis) {
+        this.chunkSize = size;
+        this.chunkDelayMillis = delayMillis;
+        return this;
+    }
+
+    HttpResponseStatus status() {
+        return status;
+    }
+
+    HttpHeaders headers() {
+        return headers;
+    }
+
+    byte[] body() {
+        return body;
+    }
+
+    long delayMillis() {
+        return delayMillis;
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    long chunkDelayMillis() {
+        return chunkDelayMillis;
+    }
+
+    boolean isReset() {
+        return reset;
+    }
+}
@@ -0,0 +1,277 @@
+package mock;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.codec.http.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+/**
+ * 测试用的嵌入式HTTP服务器，默认绑定127.0.0.1的随机端口，也可以绑定local://名字或unix domain socket，每个响应之后关闭连接
+ * 按方法和URI回放录制的响应，没有匹配时依次使用enqueue的响应，再没有时使用otherwise设置的响应，默认为404
+ * 收到的每个请求都被记录，可以用takeRequest检查；与真实的服务器一样，没有Host首部的HTTP/1.1请求以400拒绝
+ */
+public final class MockServer implements AutoCloseable {
+    private static final int MAX_REQUEST_SIZE = 64 * 1024 * 1024;
+
+    private final EventLoopGroup group;
+    private final Channel serverChannel;
+
+    //"GET /users/1"形式的key
+    private final Map<String, MockResponse> routes = new ConcurrentHashMap<>();
+    private final Queue<MockResponse> queue = new ConcurrentLinkedQueue<>();
+    private volatile MockResponse otherwise = new MockResponse().status(404);
+
+    private final BlockingQueue<RecordedRequest> requests = new LinkedBlockingQueue<>();
+
+    private MockServer(EventLoopGroup group, Class<? extends ServerChannel> channelClass, SocketAddress address,
+                       int readBytes, long readIntervalMillis) throws InterruptedException {
+        this.group = group;
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(group)
+                .channel(channelClass)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ChannelPipeline pipeline = ch.pipeline();
+                        if (readBytes > 0) {
+                            pipeline.addLast(new ReadThrottle(readIntervalMillis));
+                        }
+                        pipeline.addLast(new HttpServerCodec());
+                        pipeline.addLast(new HttpObjectAggregator(MAX_REQUEST_SIZE));
+                        pipeline.addLast(new MockHandler());
+                    }
+                });
+        if (readBytes > 0) {
+            //小的接收缓冲区使客户端很快感受到背压
+            bootstrap.childOption(ChannelOption.AUTO_READ, false)
+                    .childOption(ChannelOption.SO_RCVBUF, readBytes)
+                    .childOption(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(readBytes));
+        }
+        serverChannel = bootstrap.bind(address).sync().channel();
+    }
+
+    public static MockServer start() throws InterruptedException {
+        return new MockServer(new NioEventLoopGroup(2), NioServerSocketChannel.class,
+                new InetSocketAddress("127.0.0.1", 0), 0, 0);
+    }
+
+    /**
+     * 启动绑定在local://name上的服务器，只能在同一个JVM中连接
+     * @param name 绑定的名字
+     */
+    public static MockServer startLocal(String name) throws InterruptedException {
+        return new MockServer(new DefaultEventLoopGroup(2), LocalServerChannel.class, new LocalAddress(name), 0, 0);
+    }
+
+    /**
+     * 启动绑定在unix domain socket上的服务器，需要epoll
+     * @param socket socket文件的路径，不能已经存在
+     */
+    public static MockServer startDomainSocket(Path socket) throws InterruptedException {
+        return new MockServer(new EpollEventLoopGroup(2), EpollServerDomainSocketChannel.class,
+                new DomainSocketAddress(socket.toFile()), 0, 0);
+    }
+
+    /**
+     * 启动一个读取请求很慢的服务器
+     * @param bytesPerRead 每次读取的字节数
+     * @param intervalMillis 两次读取之间等待的毫秒数
+     */
+    public static MockServer startSlowReading(int bytesPerRead, long intervalMillis) throws InterruptedException {
+        return new MockServer(new NioEventLoopGroup(2), NioServerSocketChannel.class,
+                new InetSocketAddress("127.0.0.1", 0), bytesPerRead, intervalMillis);
+    }
+
+    public int port() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    public String baseUrl() {
+        SocketAddress address = serverChannel.localAddress();
+        if (address instanceof LocalAddress) {
+            return "local://" + ((LocalAddress) address).id();
+        }
+        if (address instanceof DomainSocketAddress) {
+            //socket路径之后的':'分隔请求的路径
+            return "unix://" + ((DomainSocketAddress) address).path() + ":";
+        }
+        return "http://127.0.0.1:" + port();
+    }
+
+    /**
+     * 为指定的请求设置固定的响应，每次请求都返回它
+     */
+    public MockServer route(HttpMethod method, String uri, MockResponse response) {
+        routes.put(method + " " + uri, response);
+        return this;
+    }
+
+    /**
+     * 添加一个只使用一次的响应，按添加的顺序使用
+     */
+    public MockServer enqueue(MockResponse response) {
+        queue.add(response);
+        return this;
+    }
+
+    /**
+     * 设置没有匹配的路由且队列为空时的响应
+     */
+    public MockServer otherwise(MockResponse response) {
+        this.otherwise = response;
+        return this;
+    }
+
+    /**
+     * 从json文件加载录制的响应，文件是Recording的数组
+     * @param file 录制文件
+     */
+    public MockServer replay(Path file) throws IOException {
+        List<Recording> recordings;
+        try (Reader reader = Files.newBufferedReader(file)) {
+            recordings = new Gson().fromJson(reader, new TypeToken<List<Recording>>() {}.getType());
+        }
+        for (Recording recording : recordings) {
+            MockResponse response = new MockResponse().status(recording.status)
+                    .body(recording.body == null ? "" : recording.body);
+            if (recording.headers != null) {
+                recording.headers.forEach(response::header);
+            }
+            route(HttpMethod.valueOf(recording.method), recording.uri, response);
+        }
+        return this;
+    }
+
+    /**
+     * @param timeoutMillis 最多等待的毫秒数
+     * @return 最早收到的还没有取出的请求，超时返回null
+     */
+    public RecordedRequest takeRequest(long timeoutMillis) throws InterruptedException {
+        return requests.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int requestCount() {
+        return requests.size();
+    }
+
+    @Override
+    public void close() {
+        serverChannel.close().syncUninterruptibly();
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    private MockResponse dispatch(FullHttpRequest request) {
+        MockResponse response = routes.get(request.method() + " " + request.uri());
+        if (response == null) {
+            response = queue.poll();
+        }
+        return response == null ? otherwise : response;
+    }
+
+    /**
+     * 录制文件中的一条记录
+     */
+    static final class Recording {
+        String method;
+        String uri;
+        int status = 200;
+        Map<String, String> headers;
+        String body;
+    }
+
+    private final class MockHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            ctx.read();
+            ctx.fireChannelActive();
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            requests.add(new RecordedRequest(request));
+            MockResponse response = missingHost(request) ? new MockResponse().status(400) : dispatch(request);
+            if (response.isReset()) {
+                ctx.channel().config().setOption(ChannelOption.SO_LINGER, 0);
+                ctx.close();
+                return;
+            }
+            ctx.executor().schedule(() -> writeHead(ctx, response), response.delayMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private boolean missingHost(FullHttpRequest request) {
+            return request.protocolVersion().equals(HttpVersion.HTTP_1_1)
+                    && !request.headers().contains(HttpHeaderNames.HOST);
+        }
+
+        private void writeHead(ChannelHandlerContext ctx, MockResponse response) {
+            HttpResponse head = new DefaultHttpResponse(HttpVersion.HTTP_1_1, response.status());
+            head.headers().add(response.headers());
+            head.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            if (response.chunkSize() > 0) {
+                HttpUtil.setTransferEncodingChunked(head, true);
+                ctx.write(head);
+                writeChunk(ctx, response, 0);
+            } else {
+                HttpUtil.setContentLength(head, response.body().length);
+                ctx.write(head);
+                ctx.writeAndFlush(new DefaultLastHttpContent(Unpooled.wrappedBuffer(response.body())))
+                        .addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+
+        private void writeChunk(ChannelHandlerContext ctx, MockResponse response, int offset) {
+            byte[] body = response.body();
+            if (offset >= body.length) {
+                ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT).addListener(ChannelFutureListener.CLOSE);
+                return;
+            }
+            int length = Math.min(response.chunkSize(), body.length - offset);
+            ctx.writeAndFlush(new DefaultHttpContent(Unpooled.wrappedBuffer(body, offset, length)));
+            ctx.executor().schedule(() -> writeChunk(ctx, response, offset + length),
+                    response.chunkDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.close();
+        }
+    }
+
+    /**
+     * 慢读：推迟每一次读取，包括HttpObjectAggregator为了读完请求而发起的读取
+     */
+    private static final class ReadThrottle extends ChannelOutboundHandlerAdapter {
+        private final long intervalMillis;
+
+        ReadThrottle(long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+        }
+
+        @Override
+        public void read(ChannelHandlerContext ctx) {
+            ctx.executor().schedule(() -> {
+                ctx.read();
+            }, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
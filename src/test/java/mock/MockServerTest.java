@@ -0,0 +1,94 @@
+package mock;
+
+import annotation.method.Get;
+import annotation.method.Post;
+import annotation.param.PathVariable;
+import annotation.param.RequestBody;
+import exceptions.HttpRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import proxy.NettyProxy;
+import proxy.NettyRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MockServerTest {
+    interface Api {
+        @Get("/users/{id}")
+        NettyRequest<Map<String, Object>> user(@PathVariable("id") String id);
+
+        @Get("/ping")
+        NettyRequest<String> ping();
+
+        @Post("/upload")
+        NettyRequest<String> upload(@RequestBody("data") String data);
+    }
+
+    @Test
+    public void replaysRecordedResponses(@TempDir Path dir) throws Exception {
+        Path recording = dir.resolve("users.json");
+        Files.write(recording, ("[{\"method\":\"GET\",\"uri\":\"/users/1\",\"status\":200,"
+                + "\"headers\":{\"Content-Type\":\"application/json\"},\"body\":\"{\\\"name\\\":\\\"tom\\\"}\"}]").getBytes());
+        try (MockServer server = MockServer.start().replay(recording)) {
+            Api api = bind(server);
+            assertEquals("tom", api.user("1").execute().get("name"));
+            assertEquals(404, assertThrows(HttpRequestException.class, () -> api.user("2").execute()).getCode());
+
+            RecordedRequest request = server.takeRequest(1000);
+            assertEquals("/users/1", request.uri());
+            assertEquals("application/json", request.headers().get("Accept"));
+        }
+    }
+
+    @Test
+    public void injectsLatencyAndResets() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            Api api = bind(server);
+            server.enqueue(MockResponse.text("slow").delay(200)).enqueue(MockResponse.reset());
+
+            long start = System.nanoTime();
+            assertEquals("slow", api.ping().execute());
+            assertTrue(System.nanoTime() - start >= 200_000_000L);
+
+            assertEquals(0, assertThrows(HttpRequestException.class, () -> api.ping().execute()).getCode());
+            assertEquals(2, server.requestCount());
+        }
+    }
+
+    @Test
+    public void servesLargeChunkedBodies() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            NettyProxy proxy = new NettyProxy();
+            proxy.baseUrl(server.baseUrl()).maxResponseSize(8 * 1024 * 1024);
+            Api api = (Api) proxy.bind(Api.class);
+            server.otherwise(MockResponse.large(3 * 1024 * 1024).chunked(64 * 1024, 1));
+
+            assertEquals(3 * 1024 * 1024, api.ping().execute().length());
+            //超过默认的最大长度
+            assertThrows(HttpRequestException.class, () -> bind(server).ping().execute());
+        }
+    }
+
+    @Test
+    public void readsRequestBodiesSlowly() throws Exception {
+        try (MockServer server = MockServer.startSlowReading(4096, 5)) {
+            server.otherwise(MockResponse.text("done"));
+            String data = new String(new char[256 * 1024]).replace('\0', 'x');
+
+            long start = System.nanoTime();
+            assertEquals("done", bind(server).upload(data).execute());
+            assertTrue(System.nanoTime() - start >= 100_000_000L);
+            assertEquals(data.length() + 2, server.takeRequest(1000).body().length);
+        }
+    }
+
+    private static Api bind(MockServer server) {
+        NettyProxy proxy = new NettyProxy();
+        proxy.baseUrl(server.baseUrl());
+        return (Api) proxy.bind(Api.class);
+    }
+}
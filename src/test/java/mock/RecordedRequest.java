@@ -0,0 +1,50 @@
+package mock;
+
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MockServer收到的请求，内容都是副本，不持有netty的缓冲区
+ */
+public final class RecordedRequest {
+    private final HttpMethod method;
+    private final String uri;
+    private final HttpHeaders headers;
+    private final byte[] body;
+
+    RecordedRequest(FullHttpRequest request) {
+        this.method = request.method();
+        this.uri = request.uri();
+        this.headers = request.headers().copy();
+        this.body = new byte[request.content().readableBytes()];
+        request.content().getBytes(request.content().readerIndex(), body);
+    }
+
+    public HttpMethod method() {
+        return method;
+    }
+
+    public String uri() {
+        return uri;
+    }
+
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    public byte[] body() {
+        return body;
+    }
+
+    public String bodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + uri;
+    }
+}
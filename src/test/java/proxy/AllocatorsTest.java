@@ -0,0 +1,82 @@
+package proxy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllocatorsTest {
+    @Test
+    public void statsReportArenaUsage() {
+        ByteBufAllocator allocator = Allocators.pooled(true, 2, 256, 64);
+        ByteBuf buf = allocator.directBuffer(1024);
+        try {
+            AllocatorStats stats = Allocators.stats(allocator);
+            assertTrue(stats.getUsedDirectMemory() > 0);
+            assertEquals(2, stats.getDirectArenas().size());
+            assertEquals(256, stats.getSmallCacheSize());
+            assertEquals(64, stats.getNormalCacheSize());
+            assertEquals(1, stats.getDirectArenas().stream().mapToLong(AllocatorStats.ArenaStats::getNumActiveAllocations).sum());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void unpooledStatsHaveNoArenas() {
+        AllocatorStats stats = Allocators.stats(Allocators.unpooled(false));
+        assertTrue(stats.getDirectArenas().isEmpty());
+        assertTrue(stats.getHeapArenas().isEmpty());
+    }
+
+    @Test
+    public void receiveBufferIsLearnedAcrossConnections() {
+        EndpointRecvByteBufAllocator allocator = new EndpointRecvByteBufAllocator(64, 1024, 64 * 1024);
+        assertEquals(1024, allocator.initialGuess());
+
+        //每个连接的响应都在一次读取中填满16KB
+        for (int i = 0; i < 10; i++) {
+            read(allocator, 16 * 1024);
+        }
+        assertTrue(allocator.initialGuess() >= 8 * 1024, "guess " + allocator.initialGuess());
+        assertTrue(allocator.initialGuess() <= 16 * 1024, "guess " + allocator.initialGuess());
+
+        //响应变小后逐渐缩小
+        for (int i = 0; i < 20; i++) {
+            read(allocator, 512);
+        }
+        assertTrue(allocator.initialGuess() <= 1024, "guess " + allocator.initialGuess());
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void fullReadDoublesWithinConnection() {
+        EndpointRecvByteBufAllocator allocator = new EndpointRecvByteBufAllocator(64, 1024, 4096);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RecvByteBufAllocator.Handle handle = allocator.newHandle();
+        handle.reset(channel.config());
+        ByteBuf buf = handle.allocate(channel.alloc());
+        handle.attemptedBytesRead(buf.writableBytes());
+        handle.lastBytesRead(buf.writableBytes());
+        buf.release();
+        assertEquals(2048, handle.guess());
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * 模拟一个新连接读取一次响应
+     */
+    @SuppressWarnings("deprecation")
+    private static void read(EndpointRecvByteBufAllocator allocator, int bytes) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RecvByteBufAllocator.Handle handle = allocator.newHandle();
+        handle.reset(channel.config());
+        handle.attemptedBytesRead(Math.max(bytes, handle.guess()));
+        handle.lastBytesRead(bytes);
+        handle.readComplete();
+        channel.finishAndReleaseAll();
+    }
+}
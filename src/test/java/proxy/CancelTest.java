@@ -0,0 +1,183 @@
+package proxy;
+
+import annotation.method.RateLimit;
+import callback.HttpCallback;
+import io.netty.buffer.AbstractByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledDirectByteBuf;
+import io.netty.buffer.UnpooledHeapByteBuf;
+import io.netty.handler.codec.http.HttpMethod;
+import mock.MockResponse;
+import mock.MockServer;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CancelTest {
+    /**
+     * 记录分配的所有缓冲区，用于检查取消之后是否都被释放
+     */
+    static class TrackingAllocator extends AbstractByteBufAllocator {
+        final List<ByteBuf> buffers = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+            ByteBuf buffer = new UnpooledHeapByteBuf(this, initialCapacity, maxCapacity);
+            buffers.add(buffer);
+            return buffer;
+        }
+
+        @Override
+        protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+            ByteBuf buffer = new UnpooledDirectByteBuf(this, initialCapacity, maxCapacity);
+            buffers.add(buffer);
+            return buffer;
+        }
+
+        @Override
+        public boolean isDirectBufferPooled() {
+            return false;
+        }
+
+        void assertReleased() throws InterruptedException {
+            //连接在event loop中异步关闭
+            for (int i = 0; i < 100 && buffers.stream().anyMatch(b -> b.refCnt() > 0); i++) {
+                Thread.sleep(20);
+            }
+            assertFalse(buffers.isEmpty());
+            assertTrue(buffers.stream().allMatch(b -> b.refCnt() == 0));
+        }
+    }
+
+    @BeforeAll
+    static void paranoid() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @Test
+    public void cancelWhileDelayedReleasesBody() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RateLimiter limiter = new RateLimiter(1, 1, RateLimit.Mode.DELAY, 10000);
+        limiter.reserve(System.nanoTime());
+
+        TrackingAllocator allocator = new TrackingAllocator();
+        NettyRequest<String> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.POST).url("http://127.0.0.1:" + port + "/user").allocator(allocator)
+                .rateLimit(null, limiter).body(Collections.singletonMap("name", "tom"));
+
+        CompletableFuture<String> future = request.executeAsync();
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+        allocator.assertReleased();
+    }
+
+    @Test
+    public void cancelInFlightCallsBackOnce() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.ok("\"late\"").delay(300));
+            NettyRequest<String> request = new NettyRequest<>();
+            request.httpMethod(HttpMethod.GET).url(server.baseUrl() + "/slow").resultType(String.class);
+
+            BlockingQueue<Exception> failures = new LinkedBlockingQueue<>();
+            BlockingQueue<String> successes = new LinkedBlockingQueue<>();
+            Cancellable handle = request.requestAsync(new HttpCallback<String>() {
+                @Override
+                public void onSuccess(String response) {
+                    successes.add(response);
+                }
+
+                @Override
+                public void onFailed(int code, String message, Exception e) {
+                    failures.add(e);
+                }
+            });
+            assertNotNull(server.takeRequest(5000));
+            assertTrue(handle.cancel());
+            assertFalse(handle.cancel());
+            assertTrue(failures.poll(1, TimeUnit.SECONDS) instanceof CancellationException);
+
+            //服务端的响应到达之后也不会再有回调
+            Thread.sleep(600);
+            assertTrue(failures.isEmpty());
+            assertTrue(successes.isEmpty());
+        }
+    }
+
+    @Test
+    public void cancelStopsUploadMidFlight(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("large.bin");
+        Files.write(file, new byte[8 * 1024 * 1024]);
+        try (MockServer server = MockServer.startSlowReading(4096, 10)) {
+            TrackingAllocator allocator = new TrackingAllocator();
+            NettyRequest<String> request = new NettyRequest<>();
+            request.httpMethod(HttpMethod.POST).url(server.baseUrl() + "/upload").resultType(String.class)
+                    .allocator(allocator).multipart(true).addMultipart("file", file.toFile())
+                    .addMultipart("user", Collections.singletonMap("name", "tom"));
+
+            CompletableFuture<String> future = request.executeAsync();
+            Thread.sleep(200);
+            assertTrue(future.cancel(true));
+            assertThrows(CancellationException.class, future::get);
+            allocator.assertReleased();
+            assertEquals(0, server.requestCount());
+        }
+    }
+
+    @Test
+    public void resultAfterCancelIsReleased() {
+        List<Object> delivered = new CopyOnWriteArrayList<>();
+        RequestHandle<ByteBuf> handle = new RequestHandle<>(new HttpCallback<ByteBuf>() {
+            @Override
+            public void onSuccess(ByteBuf response) {
+                delivered.add(response);
+            }
+
+            @Override
+            public void onFailed(int code, String message, Exception e) {
+            }
+        });
+        assertTrue(handle.cancel());
+
+        //取消之后才到达的响应不会交给回调，由句柄释放
+        ByteBuf late = Unpooled.copiedBuffer("late", StandardCharsets.UTF_8);
+        handle.onSuccess(late);
+        assertEquals(0, late.refCnt());
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    public void cancelWhileByteBufResponseArrivesReleasesIt() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.large(64 * 1024).chunked(8 * 1024, 5));
+            TrackingAllocator allocator = new TrackingAllocator();
+            //在响应到达的不同阶段取消，包括与结果交付竞争的时刻
+            for (int delay = 0; delay < 80; delay += 4) {
+                NettyRequest<ByteBuf> request = new NettyRequest<>();
+                request.httpMethod(HttpMethod.GET).url(server.baseUrl() + "/large").resultType(ByteBuf.class)
+                        .allocator(allocator);
+
+                CompletableFuture<ByteBuf> future = request.executeAsync();
+                Thread.sleep(delay);
+                if (!future.cancel(true)) {
+                    future.get(5, TimeUnit.SECONDS).release();
+                }
+            }
+            allocator.assertReleased();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package proxy;
+
+import annotation.method.Get;
+import annotation.method.Stream;
+import callback.HttpCallback;
+import exceptions.ClientShutdownException;
+import exceptions.HttpRequestException;
+import handler.ServerSentEvent;
+import mock.MockResponse;
+import mock.MockServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientResourcesTest {
+    interface Api {
+        @Get("/ping")
+        NettyRequest<String> ping();
+
+        @Get("/events")
+        @Stream(Stream.Format.SSE)
+        NettyRequest<Flow.Publisher<ServerSentEvent>> events();
+    }
+
+    @Test
+    public void requestsRunOnOwnEventLoop() throws Exception {
+        try (MockServer server = MockServer.start();
+             ClientResources resources = ClientResources.create(1)) {
+            server.otherwise(MockResponse.text("pong"));
+            NettyProxy proxy = new NettyProxy();
+            proxy.baseUrl(server.baseUrl()).clientResources(resources);
+            Api api = (Api) proxy.bind(Api.class);
+
+            CompletableFuture<Boolean> onOwnLoop = new CompletableFuture<>();
+            api.ping().requestAsync(new HttpCallback<String>() {
+                @Override
+                public void onSuccess(String response) {
+                    onOwnLoop.complete(resources.inEventLoop());
+                }
+
+                @Override
+                public void onFailed(int code, String message, Exception e) {
+                    onOwnLoop.completeExceptionally(e);
+                }
+            });
+            assertTrue(onOwnLoop.get(5, TimeUnit.SECONDS));
+            assertFalse(ClientResources.shared().inEventLoop());
+        }
+    }
+
+    @Test
+    public void shutdownDrainsInFlightAndRejectsNew() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.text("pong").delay(300));
+            NettyProxy proxy = new NettyProxy();
+            proxy.baseUrl(server.baseUrl()).eventLoopThreads(1);
+            Api api = (Api) proxy.bind(Api.class);
+
+            CompletableFuture<String> inFlight = api.ping().executeAsync();
+            server.takeRequest(1000);
+            CompletableFuture<Void> terminated = proxy.shutdownGracefully(5, TimeUnit.SECONDS);
+            HttpRequestException rejected = assertThrows(HttpRequestException.class, () -> api.ping().execute());
+            assertTrue(rejected.getCause() instanceof ClientShutdownException);
+
+            terminated.get(5, TimeUnit.SECONDS);
+            assertEquals("pong", inFlight.getNow(null));
+            assertSame(terminated, proxy.shutdownGracefully(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void shutdownCancelsAfterTimeout() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.text("pong").delay(5000));
+            ClientResources resources = ClientResources.create(1);
+            NettyProxy proxy = new NettyProxy();
+            proxy.baseUrl(server.baseUrl()).clientResources(resources);
+            Api api = (Api) proxy.bind(Api.class);
+
+            CompletableFuture<String> inFlight = api.ping().executeAsync();
+            server.takeRequest(1000);
+            long start = System.nanoTime();
+            resources.shutdownGracefully(100, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+            assertTrue(System.nanoTime() - start < 4_000_000_000L);
+            ExecutionException e = assertThrows(ExecutionException.class, inFlight::get);
+            assertTrue(e.getCause().getCause() instanceof CancellationException);
+            assertTrue(resources.isShutdown());
+        }
+    }
+
+    @Test
+    public void shutdownStopsSseReconnect() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            //每次响应结束后500毫秒重连
+            server.otherwise(MockResponse.text("retry: 500\ndata: a\n\n"));
+            NettyProxy proxy = new NettyProxy();
+            proxy.baseUrl(server.baseUrl()).eventLoopThreads(1);
+            Api api = (Api) proxy.bind(Api.class);
+
+            CompletableFuture<String> first = new CompletableFuture<>();
+            CompletableFuture<Throwable> error = new CompletableFuture<>();
+            api.events().execute().subscribe(new Flow.Subscriber<ServerSentEvent>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(ServerSentEvent item) {
+                    first.complete(item.getData());
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    error.complete(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    error.completeExceptionally(new AssertionError("stream completed"));
+                }
+            });
+            assertEquals("a", first.get(5, TimeUnit.SECONDS));
+
+            //连接断开后等待重连期间关闭，不再重连，Publisher以异常结束
+            proxy.shutdownGracefully(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+            assertTrue(error.get(5, TimeUnit.SECONDS) instanceof ClientShutdownException);
+            assertEquals(1, server.requestCount());
+        }
+    }
+
+    @Test
+    public void closingProxyKeepsSharedResources() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.text("pong"));
+            NettyProxy first = new NettyProxy();
+            first.baseUrl(server.baseUrl());
+            Api api = (Api) first.bind(Api.class);
+            first.close();
+            assertThrows(HttpRequestException.class, () -> api.ping().execute());
+
+            NettyProxy second = new NettyProxy();
+            second.baseUrl(server.baseUrl());
+            assertEquals("pong", ((Api) second.bind(Api.class)).ping().execute());
+            assertThrows(IllegalStateException.class, () -> ClientResources.shared().close());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package proxy;
+
+import exceptions.HttpRequestException;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import mock.MockResponse;
+import mock.MockServer;
+import mock.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectContinueTest {
+    @Test
+    public void bodyIsSentAfterContinue(@TempDir Path dir) throws Exception {
+        File file = file(dir, 256 * 1024);
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.text("ok"));
+            long start = System.nanoTime();
+            assertEquals("ok", upload(server.baseUrl(), file, 5000).execute());
+            //HttpObjectAggregator回复了100 Continue，不需要等到超时
+            assertTrue(System.nanoTime() - start < 4_000_000_000L);
+
+            //Expect首部已经被服务端的HttpObjectAggregator处理并移除
+            RecordedRequest request = server.takeRequest(1000);
+            assertTrue(request.body().length > file.length());
+        }
+    }
+
+    @Test
+    public void earlyRejectionSkipsBody(@TempDir Path dir) throws Exception {
+        File file = file(dir, 4 * 1024 * 1024);
+        try (ServerSocket server = new ServerSocket(0)) {
+            CompletableFuture<Long> bodyBytes = CompletableFuture.supplyAsync(() -> {
+                try (Socket socket = server.accept()) {
+                    readHead(socket.getInputStream());
+                    OutputStream out = socket.getOutputStream();
+                    out.write(("HTTP/1.1 413 Payload Too Large\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    long count = 0;
+                    while (socket.getInputStream().read() >= 0) {
+                        count++;
+                    }
+                    return count;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            HttpRequestException e = assertThrows(HttpRequestException.class,
+                    () -> upload("http://127.0.0.1:" + server.getLocalPort(), file, 5000).execute());
+            assertEquals(413, e.getCode());
+            assertEquals(0, bodyBytes.get());
+        }
+    }
+
+    @Test
+    public void bodyIsSentAfterTimeout(@TempDir Path dir) throws Exception {
+        File file = file(dir, 64 * 1024);
+        try (ServerSocket server = new ServerSocket(0)) {
+            //不支持100-continue的服务端，直接等待请求体
+            CompletableFuture<Void> served = CompletableFuture.runAsync(() -> {
+                try (Socket socket = server.accept()) {
+                    InputStream in = socket.getInputStream();
+                    String head = readHead(in);
+                    assertTrue(head.contains("host: 127.0.0.1:" + server.getLocalPort() + "\r\n"), head);
+                    int length = Integer.parseInt(head.replaceAll("(?s).*content-length: (\\d+).*", "$1"));
+                    assertEquals(length, in.readNBytes(length).length);
+                    socket.getOutputStream().write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok"
+                            .getBytes(StandardCharsets.US_ASCII));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            long start = System.nanoTime();
+            assertEquals("ok", upload("http://127.0.0.1:" + server.getLocalPort(), file, 300).execute());
+            assertTrue(System.nanoTime() - start >= 300_000_000L);
+            served.get();
+        }
+    }
+
+    @Test
+    public void smallBodiesDoNotExpectContinue(@TempDir Path dir) throws Exception {
+        NettyRequest<String> request = upload("http://localhost:8080", file(dir, 100), 1000)
+                .expectContinue(1024, 1000);
+        MultipartEncoder encoder = request.multipartEncoder();
+        HttpRequest head = request.buildMultipartRequest(encoder);
+        assertEquals(HttpVersion.HTTP_1_0, head.protocolVersion());
+        assertFalse(head.headers().contains(HttpHeaderNames.EXPECT));
+        encoder.close();
+    }
+
+    @Test
+    public void expectContinueSetsHost(@TempDir Path dir) throws Exception {
+        NettyRequest<String> request = upload("http://localhost:8080", file(dir, 100), 1000);
+        MultipartEncoder encoder = request.multipartEncoder();
+        HttpRequest head = request.buildMultipartRequest(encoder);
+        assertEquals(HttpVersion.HTTP_1_1, head.protocolVersion());
+        assertEquals("localhost:8080", head.headers().get(HttpHeaderNames.HOST));
+        encoder.close();
+
+        //默认端口不写入Host
+        request = upload("http://example.com", file(dir, 100), 1000);
+        encoder = request.multipartEncoder();
+        assertEquals("example.com", request.buildMultipartRequest(encoder).headers().get(HttpHeaderNames.HOST));
+        encoder.close();
+    }
+
+    private static NettyRequest<String> upload(String baseUrl, File file, long timeoutMillis) {
+        NettyRequest<String> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.POST).url(baseUrl + "/upload").resultType(String.class)
+                .multipart(true).addMultipart("file", file)
+                .expectContinue(0, timeoutMillis);
+        return request;
+    }
+
+    private static File file(Path dir, int size) throws IOException {
+        Path path = dir.resolve("upload-" + size + ".bin");
+        Files.write(path, new byte[size]);
+        return path.toFile();
+    }
+
+    /**
+     * 逐字节读取请求首部，不读到请求体
+     * @return 小写的请求首部
+     */
+    private static String readHead(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            head.append((char) b);
+        }
+        String lower = head.toString().toLowerCase();
+        assertTrue(lower.contains("expect: 100-continue"), lower);
+        return lower;
+    }
+}
@@ -0,0 +1,194 @@
+package proxy;
+
+import codec.GsonCodec;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.*;
+import java.io.File;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeneratedClientTest {
+    private static final String SOURCE = String.join("\n",
+            "package sample;",
+            "import annotation.header.Header;",
+            "import annotation.mapping.RequestMapping;",
+            "import annotation.method.*;",
+            "import annotation.param.*;",
+            "import proxy.NettyRequest;",
+            "@RequestMapping(\"/users\")",
+            "@Header(key = \"X-Client\", val = \"generated\")",
+            "public interface UserService {",
+            "    @Get(\"/{id}\")",
+            "    NettyRequest<java.util.List<String>> find(@PathVariable(\"id\") String id, @RequestParam(\"tag\") java.util.List<String> tags);",
+            "    @Post(\"/\")",
+            "    @RateLimit(value = 100, burst = 2)",
+            "    NettyRequest<String> create(@RequestBody Object body);",
+            "}");
+
+    @Test
+    public void generatedImplementationIsUsedByBind(@TempDir Path dir) throws Exception {
+        ClassLoader loader = compile(dir, SOURCE, true);
+        Class<?> type = loader.loadClass("sample.UserService");
+
+        NettyProxy proxy = new NettyProxy();
+        proxy.baseUrl("http://localhost:8080/api");
+        Object client = proxy.bind(type);
+        assertEquals("sample.UserService_NettyImpl", client.getClass().getName());
+        assertTrue(Files.exists(dir.resolve(
+                "META-INF/native-image/netty-http-client/sample.UserService_NettyImpl/reflect-config.json")));
+
+        NettyRequest<?> find = (NettyRequest<?>) type.getMethod("find", String.class, List.class)
+                .invoke(client, "a b", Arrays.asList("x", "y&z"));
+        FullHttpRequest request = find.buildRequest();
+        assertEquals(HttpMethod.GET, request.method());
+        assertEquals("/api/users/a%20b?tag=x&tag=y%26z", request.uri());
+        assertEquals("generated", request.headers().get("X-Client"));
+        assertEquals("application/json", request.headers().get(HttpHeaderNames.ACCEPT));
+        request.release();
+
+        NettyRequest<?> create = (NettyRequest<?>) type.getMethod("create", Object.class).invoke(client, "body");
+        request = create.buildRequest();
+        assertEquals(HttpMethod.POST, request.method());
+        assertEquals("\"body\"", request.content().toString(StandardCharsets.UTF_8));
+        request.release();
+    }
+
+    @Test
+    public void invalidAnnotationsFailCompilation(@TempDir Path dir) throws Exception {
+        String[] methods = {
+                "    @Post(\"/{name}\")\n    NettyRequest<String> upload(@PathVariable(\"name\") String name, @Upload(\"file\") String file);",
+                //与MethodSpec.parse一样拒绝的接口
+                "    @Post(\"/\")\n    NettyRequest<String> upload(@Upload(\"file\") java.io.File file);",
+                "    @Get(\"/\")\n    NettyRequest<String> find(@PathVariable(\"id\") String id);",
+                "    @Post(\"/\")\n    NettyRequest<String> create(@RequestBody(\"a\") String a, @RequestBody(\"b\") String b);"};
+        for (int i = 0; i < methods.length; i++) {
+            String source = String.join("\n",
+                    "package sample;",
+                    "import annotation.mapping.RequestMapping;",
+                    "import annotation.method.*;",
+                    "import annotation.param.*;",
+                    "import proxy.NettyRequest;",
+                    "@RequestMapping(\"/files\")",
+                    "public interface UserService {",
+                    methods[i],
+                    "}");
+            assertNull(compile(dir.resolve("case" + i), source, false), methods[i]);
+        }
+    }
+
+    @Test
+    public void generatedBodyTypesAreWarmedUp(@TempDir Path dir) throws Exception {
+        ClassLoader loader = compile(dir, SOURCE.replace("@RequestBody Object body", "@RequestBody java.util.Map<String, Integer> body"), true);
+        Set<Type> prepared = ConcurrentHashMap.newKeySet();
+        NettyProxy proxy = new NettyProxy();
+        proxy.baseUrl("http://localhost:8080/api")
+                .codec(new GsonCodec() {
+                    @Override
+                    public void prepare(Type type) {
+                        prepared.add(type);
+                        super.prepare(type);
+                    }
+                })
+                .warmUp(0);
+        assertEquals("sample.UserService_NettyImpl", proxy.bind(loader.loadClass("sample.UserService")).getClass().getName());
+        assertTrue(prepared.stream().anyMatch(type -> type.getTypeName().equals("java.util.Map<java.lang.String, java.lang.Integer>")),
+                prepared.toString());
+    }
+
+    @Test
+    public void generatedUriMatchesReflectiveUri(@TempDir Path dir) throws Exception {
+        String source = String.join("\n",
+                "package sample;",
+                "import annotation.mapping.RequestMapping;",
+                "import annotation.method.*;",
+                "import annotation.param.*;",
+                "import proxy.NettyRequest;",
+                "@RequestMapping(\"api\")",
+                "public interface UserService {",
+                "    @Get(\"users\")",
+                "    NettyRequest<String> users();",
+                "    @Get(\"/users/{id}\")",
+                "    NettyRequest<String> user(@PathVariable(\"id\") String id);",
+                "    @Get(\"\")",
+                "    NettyRequest<String> root();",
+                "    @Get(\"?q=1\")",
+                "    NettyRequest<String> query(@RequestParam(\"p\") String p);",
+                "}");
+        ClassLoader generated = compile(dir.resolve("generated"), source, true);
+        ClassLoader reflective = compile(dir.resolve("reflective"), source, true, "-proc:none");
+
+        String[][] expected = {
+                {"users", "/base/api/users"},
+                {"user", "/base/api/users/7"},
+                {"root", "/base/api"},
+                {"query", "/base/api?q=1&p=2"}};
+        for (String baseUrl : new String[]{"http://localhost:8080/base", "http://localhost:8080/base/"}) {
+            Object generatedClient = bind(generated, baseUrl);
+            Object reflectiveClient = bind(reflective, baseUrl);
+            assertEquals("sample.UserService_NettyImpl", generatedClient.getClass().getName());
+            for (String[] method : expected) {
+                String generatedUri = uri(generatedClient, method[0]);
+                assertEquals(uri(reflectiveClient, method[0]), generatedUri);
+                if (baseUrl.endsWith("base")) {
+                    assertEquals(method[1], generatedUri);
+                }
+            }
+        }
+    }
+
+    private static Object bind(ClassLoader loader, String baseUrl) throws Exception {
+        NettyProxy proxy = new NettyProxy();
+        proxy.baseUrl(baseUrl);
+        return proxy.bind(loader.loadClass("sample.UserService"));
+    }
+
+    private static String uri(Object client, String name) throws Exception {
+        for (java.lang.reflect.Method method : client.getClass().getMethods()) {
+            if (method.getName().equals(name)) {
+                Object[] args = method.getParameterCount() == 0 ? new Object[0] : new Object[]{name.equals("user") ? "7" : "2"};
+                FullHttpRequest request = ((NettyRequest<?>) method.invoke(client, args)).buildRequest();
+                String uri = request.uri();
+                request.release();
+                return uri;
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    private static ClassLoader compile(Path dir, String source, boolean expectSuccess, String... extraOptions) throws Exception {
+        Path file = dir.resolve("sample/UserService.java");
+        Files.createDirectories(file.getParent());
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> options = new ArrayList<>(Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                    "-processor", "processor.NettyClientProcessor", "-d", dir.toString()));
+            options.addAll(Arrays.asList(extraOptions));
+            boolean success = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects(file.toFile())).call();
+            assertEquals(expectSuccess, success, diagnostics.getDiagnostics().toString());
+            if (!success) {
+                return null;
+            }
+        }
+        return new URLClassLoader(new URL[]{dir.toUri().toURL()}, GeneratedClientTest.class.getClassLoader());
+    }
+}
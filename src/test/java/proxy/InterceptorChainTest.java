@@ -0,0 +1,100 @@
+package proxy;
+
+import interceptor.AsyncInterceptor;
+import interceptor.Interceptor;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import mock.MockResponse;
+import mock.MockServer;
+import mock.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InterceptorChainTest {
+    @Test
+    public void requestInterceptorsRunInOrderAcrossAsyncSteps() {
+        List<String> calls = new ArrayList<>();
+        CompletableFuture<Void> token = new CompletableFuture<>();
+        InterceptorChain chain = InterceptorChain.append(null, new Interceptor() {
+            @Override
+            public void onRequest(HttpRequest request) {
+                calls.add("sign");
+            }
+        });
+        chain = InterceptorChain.append(chain, new AsyncInterceptor() {
+            @Override
+            public CompletionStage<?> onRequestAsync(HttpRequest request) {
+                calls.add("refresh");
+                return token.thenRun(() -> request.headers().set("Authorization", "Bearer t"));
+            }
+        });
+        chain = InterceptorChain.append(chain, new Interceptor() {
+            @Override
+            public void onRequest(HttpRequest request) {
+                calls.add("auth=" + request.headers().get("Authorization"));
+            }
+        });
+
+        EmbeddedChannel channel = new EmbeddedChannel();
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_0, HttpMethod.GET, "/");
+        chain.onRequest(request, channel.eventLoop(), () -> calls.add("write"), cause -> fail(cause));
+        assertEquals(List.of("sign", "refresh"), calls);
+
+        //在其他线程完成后回到event loop继续
+        CompletableFuture.runAsync(() -> token.complete(null)).join();
+        channel.runPendingTasks();
+        assertEquals(List.of("sign", "refresh", "auth=Bearer t", "write"), calls);
+        channel.finish();
+    }
+
+    @Test
+    public void failingInterceptorStopsTheChain() {
+        InterceptorChain chain = InterceptorChain.append(null, new Interceptor() {
+            @Override
+            public void onRequest(HttpRequest request) {
+                throw new IllegalStateException("no credentials");
+            }
+        });
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        EmbeddedChannel channel = new EmbeddedChannel();
+        chain.onRequest(new DefaultHttpRequest(HttpVersion.HTTP_1_0, HttpMethod.GET, "/"), channel.eventLoop(),
+                () -> fail("request must not be written"), failure::set);
+        assertEquals("no credentials", failure.get().getMessage());
+        channel.finish();
+    }
+
+    @Test
+    public void interceptorsSeeRealRequestAndResponse() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.text("ok"));
+
+            AtomicReference<HttpResponseStatus> status = new AtomicReference<>();
+            InterceptorChain chain = InterceptorChain.append(null, new Interceptor() {
+                @Override
+                public void onRequest(HttpRequest request) {
+                    request.headers().set("X-Signature", "abc");
+                }
+
+                @Override
+                public void onResponse(HttpResponse response) {
+                    status.set(response.status());
+                }
+            });
+
+            NettyRequest<String> request = new NettyRequest<>();
+            request.httpMethod(HttpMethod.GET).url(server.baseUrl() + "/")
+                    .resultType(String.class).interceptors(chain);
+            assertEquals("ok", request.execute());
+            assertEquals(HttpResponseStatus.OK, status.get());
+            RecordedRequest received = server.takeRequest(5000);
+            assertEquals("abc", received.headers().get("X-Signature"), received.toString());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package proxy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultipartEncoderTest {
+    @BeforeAll
+    static void paranoid() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @Test
+    public void streamsPartsWithPrecomputedLength(@TempDir Path dir) throws Exception {
+        //比一块更大的文件，需要分多次读取
+        File file = dir.resolve("notes.txt").toFile();
+        Files.write(file.toPath(), String.join("", Collections.nCopies(3000, "hello\n")).getBytes(StandardCharsets.UTF_8));
+
+        NettyRequest<String> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.POST).url("http://localhost:8080/upload").multipart(true)
+                .addMultipart("file", file)
+                .addMultipart("user", Collections.singletonMap("name", "张三"));
+
+        MultipartEncoder encoder = request.multipartEncoder();
+        HttpRequest head = request.buildMultipartRequest(encoder);
+        String contentType = head.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length());
+
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpClientCodec(), new ChunkedWriteHandler());
+        channel.writeOutbound(head, encoder);
+        String wire = readAll(channel);
+
+        String body = wire.substring(wire.indexOf("\r\n\r\n") + 4);
+        assertEquals(head.headers().getInt(HttpHeaderNames.CONTENT_LENGTH).intValue(),
+                body.getBytes(StandardCharsets.UTF_8).length);
+        assertTrue(body.startsWith("--" + boundary + "\r\n"));
+        assertTrue(body.contains("filename=\"notes.txt\"\r\nContent-Type: text/plain\r\n\r\nhello\n"));
+        assertTrue(body.contains("\r\n--" + boundary + "\r\nContent-Disposition: form-data; name=\"user\""
+                + "\r\nContent-Type: application/json\r\n\r\n{\"name\":\"张三\"}"));
+        //结束分隔符只写一次
+        assertTrue(body.endsWith("\r\n--" + boundary + "--\r\n"));
+        assertEquals(body.indexOf("--" + boundary + "--"), body.lastIndexOf("--" + boundary + "--"));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void boundaryIsRandomPerRequest() {
+        NettyRequest<String> request = new NettyRequest<>();
+        request.multipart(true).addMultipart("a", "1");
+
+        MultipartEncoder first = request.multipartEncoder();
+        MultipartEncoder second = request.multipartEncoder();
+        assertNotEquals(first.contentType(), second.contentType());
+        first.close();
+        second.close();
+    }
+
+    private static String readAll(EmbeddedChannel channel) {
+        ByteBuf all = Unpooled.buffer();
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            all.writeBytes(buf);
+            buf.release();
+        }
+        return all.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+package proxy;
+
+import annotation.method.Get;
+import annotation.method.Post;
+import annotation.param.PathVariable;
+import annotation.param.RequestBody;
+import annotation.param.Upload;
+import codec.GsonCodec;
+import exceptions.NettyProxyException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NettyProxyTest {
+    interface BrokenApi {
+        @Get("/user/{id}")
+        NettyRequest<String> user(@PathVariable("name") String name);
+
+        @Post("/upload")
+        NettyRequest<String> upload(@Upload("file") String file);
+    }
+
+    interface UserApi {
+        @Get("/users")
+        NettyRequest<List<String>> users();
+
+        @Post("/user")
+        NettyRequest<String> save(@RequestBody("user") Map<String, Integer> user);
+    }
+
+    static class RecordingCodec extends GsonCodec {
+        final Set<Type> prepared = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void prepare(Type type) {
+            prepared.add(type);
+            super.prepare(type);
+        }
+    }
+
+    @Test
+    public void bindReportsEveryInvalidMethod() {
+        NettyProxyException e = assertThrows(NettyProxyException.class,
+                () -> proxy("http://localhost:8080").bind(BrokenApi.class));
+        assertTrue(e.getMessage().contains("user"), e.getMessage());
+        assertTrue(e.getMessage().contains("upload"), e.getMessage());
+    }
+
+    @Test
+    public void warmUpPreparesResultAndBodyTypes() throws Exception {
+        RecordingCodec codec = new RecordingCodec();
+        NettyProxy proxy = proxy("http://localhost:8080");
+        proxy.codec(codec).warmUp(0);
+        proxy.bind(UserApi.class);
+
+        Type users = UserApi.class.getMethod("users").getGenericReturnType();
+        Type user = UserApi.class.getMethod("save", Map.class).getGenericParameterTypes()[0];
+        assertTrue(codec.prepared.contains(((ParameterizedType) users).getActualTypeArguments()[0]));
+        assertTrue(codec.prepared.contains(user));
+        //String结果直接取自响应体，不经过编解码器
+        assertFalse(codec.prepared.contains(String.class));
+    }
+
+    @Test
+    public void warmUpOpensConnections() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            server.setSoTimeout(5000);
+            NettyProxy proxy = proxy("http://127.0.0.1:" + server.getLocalPort());
+            proxy.warmUp(2);
+            proxy.bind(UserApi.class);
+            try (Socket first = server.accept(); Socket second = server.accept()) {
+                assertNotNull(first);
+                assertNotNull(second);
+            }
+            proxy.warmedUp().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void warmUpConnectionFailureIsReported() throws Exception {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            port = closed.getLocalPort();
+        }
+        NettyProxy proxy = proxy("http://127.0.0.1:" + port);
+        proxy.warmUp(1);
+        //连接失败不影响bind
+        assertNotNull(proxy.bind(UserApi.class));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> proxy.warmedUp().get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof ConnectException, e.toString());
+    }
+
+    @Test
+    public void withoutWarmUpNothingIsPrepared() {
+        RecordingCodec codec = new RecordingCodec();
+        NettyProxy proxy = proxy("http://localhost:8080");
+        proxy.codec(codec);
+        proxy.bind(UserApi.class);
+        assertTrue(codec.prepared.isEmpty());
+    }
+
+    private static NettyProxy proxy(String baseUrl) {
+        NettyProxy proxy = new NettyProxy();
+        proxy.baseUrl(baseUrl);
+        return proxy;
+    }
+}
@@ -0,0 +1,117 @@
+package proxy;
+
+import callback.HttpCallback;
+import exceptions.HttpRequestException;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NettyRequestTest {
+    @BeforeAll
+    static void paranoid() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @Test
+    public void requestWithoutBodyAllocatesNothing() {
+        NettyRequest<String> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.GET).url("http://localhost:8080/user");
+
+        FullHttpRequest httpRequest = request.buildRequest();
+        assertSame(Unpooled.EMPTY_BUFFER, httpRequest.content());
+        assertEquals("0", httpRequest.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertFalse(httpRequest.headers().contains(HttpHeaderNames.CONTENT_TYPE));
+        httpRequest.release();
+    }
+
+    @Test
+    public void decompressAdvertisesEncodings() {
+        NettyRequest<String> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.GET).url("http://localhost:8080/user").decompress(true);
+
+        FullHttpRequest httpRequest = request.buildRequest();
+        assertEquals("gzip,deflate", httpRequest.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
+        httpRequest.release();
+    }
+
+    @Test
+    public void acceptFollowsResultType() {
+        assertEquals("application/json", accept(java.util.Map.class));
+        assertEquals("text/plain, */*", accept(String.class));
+        assertEquals("*/*", accept(byte[].class));
+        assertEquals("*/*", accept(Void.class));
+    }
+
+    private static String accept(java.lang.reflect.Type resultType) {
+        NettyRequest<Object> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.GET).url("http://localhost:8080/user").resultType(resultType);
+        FullHttpRequest httpRequest = request.buildRequest();
+        String accept = httpRequest.headers().get(HttpHeaderNames.ACCEPT);
+        httpRequest.release();
+        return accept;
+    }
+
+    @Test
+    public void bodyIsWrittenOnce() {
+        NettyRequest<String> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.POST).url("http://localhost:8080/user").content("{\"a\":1}");
+
+        FullHttpRequest httpRequest = request.buildRequest();
+        assertEquals(7, httpRequest.content().readableBytes());
+        assertEquals("7", httpRequest.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertTrue(httpRequest.release());
+    }
+
+    @Test
+    public void bodyIsReleasedWhenConnectFails() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        NettyRequest<String> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.POST).url("http://127.0.0.1:" + port + "/user").content("{\"a\":1}");
+
+        CountDownLatch latch = new CountDownLatch(1);
+        request.channelInitializer(new HttpCallback<String>() {
+            @Override
+            public void onSuccess(String response) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailed(int code, String message, Exception e) {
+                latch.countDown();
+            }
+        });
+        FullHttpRequest httpRequest = request.buildRequest();
+        request.doRequest(httpRequest);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, httpRequest.refCnt());
+    }
+
+    @Test
+    public void executeThrowsWhenConnectFails() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        NettyRequest<String> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.GET).url("http://127.0.0.1:" + port + "/user");
+
+        HttpRequestException e = assertThrows(HttpRequestException.class, request::execute);
+        assertEquals(404, e.getCode());
+    }
+}
@@ -0,0 +1,110 @@
+package proxy;
+
+import annotation.method.RateLimit;
+import exceptions.HttpRequestException;
+import exceptions.RateLimitException;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void burstThenSpacedByInterval() {
+        RateLimiter limiter = new RateLimiter(10, 3, RateLimit.Mode.DELAY, 10000);
+        long now = 1000;
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(SECOND / 10, limiter.reserve(now));
+        assertEquals(2 * SECOND / 10, limiter.reserve(now));
+        //令牌随时间恢复
+        assertEquals(0, limiter.reserve(now + SECOND));
+    }
+
+    @Test
+    public void rejectDoesNotConsumePermits() {
+        RateLimiter limiter = new RateLimiter(10, 1, RateLimit.Mode.REJECT, 10000);
+        long now = -5 * SECOND;
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(-1, limiter.reserve(now));
+        assertEquals(-1, limiter.reserve(now));
+        assertEquals(0, limiter.reserve(now + SECOND / 10));
+
+        RateLimiter delayed = new RateLimiter(1, 1, RateLimit.Mode.DELAY, 500);
+        assertEquals(0, delayed.reserve(now));
+        assertEquals(-1, delayed.reserve(now));
+    }
+
+    @Test
+    public void concurrentReservationsGetDistinctSlots() throws Exception {
+        RateLimiter limiter = new RateLimiter(1000, 1, RateLimit.Mode.DELAY, 60000);
+        long now = System.nanoTime();
+        Set<Long> delays = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 500; j++) {
+                    delays.add(limiter.reserve(now));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(4000, delays.size());
+        assertEquals(3999 * SECOND / 1000, (long) delays.stream().max(Long::compare).get());
+    }
+
+    @Test
+    public void tooManyRequestsPausesUntilRetryAfter() {
+        RateLimiter limiter = new RateLimiter(100, 5, RateLimit.Mode.DELAY, 10000);
+        EmbeddedChannel channel = new EmbeddedChannel(limiter.responseHandler());
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.TOO_MANY_REQUESTS);
+        response.headers().set(HttpHeaderNames.RETRY_AFTER, "2");
+        channel.writeInbound(response);
+        assertSame(response, channel.readInbound());
+
+        long delay = limiter.reserve(System.nanoTime());
+        assertTrue(delay > SECOND && delay <= 2 * SECOND, "delay " + delay);
+        assertFalse(channel.finish());
+
+        assertEquals(SECOND, RateLimiter.backoffNanos(null));
+        assertEquals(SECOND, RateLimiter.backoffNanos("soon"));
+        assertEquals(0, RateLimiter.backoffNanos("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    @Test
+    public void requestsOverTheLimitAreDelayedOrRejected() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String url = "http://127.0.0.1:" + port + "/user";
+
+        RateLimiter rejecting = new RateLimiter(1, 1, RateLimit.Mode.REJECT, 0);
+        assertEquals(404, assertThrows(HttpRequestException.class, () -> request(url, rejecting).execute()).getCode());
+        HttpRequestException e = assertThrows(HttpRequestException.class, () -> request(url, rejecting).execute());
+        assertEquals(429, e.getCode());
+        assertTrue(e.getCause() instanceof RateLimitException);
+
+        RateLimiter delaying = new RateLimiter(5, 1, RateLimit.Mode.DELAY, 10000);
+        assertThrows(HttpRequestException.class, () -> request(url, delaying).execute());
+        long start = System.nanoTime();
+        assertEquals(404, assertThrows(HttpRequestException.class, () -> request(url, delaying).execute()).getCode());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    private static NettyRequest<String> request(String url, RateLimiter methodLimiter) {
+        NettyRequest<String> request = new NettyRequest<>();
+        request.httpMethod(HttpMethod.GET).url(url);
+        request.rateLimit(null, methodLimiter);
+        return request;
+    }
+}
@@ -0,0 +1,120 @@
+package proxy;
+
+import annotation.method.Post;
+import annotation.param.RequestBody;
+import codec.GsonCodec;
+import com.google.gson.Gson;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.LastHttpContent;
+import mock.MockResponse;
+import mock.MockServer;
+import mock.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingBodyTest {
+    static class Item {
+        int id;
+        String name;
+
+        Item(int id) {
+            this.id = id;
+            this.name = "item-" + id;
+        }
+    }
+
+    interface Api {
+        @Post("/items")
+        NettyRequest<String> list(@RequestBody("items") List<Item> items);
+
+        @Post("/items")
+        NettyRequest<String> stream(@RequestBody("items") Stream<Item> items);
+    }
+
+    @Test
+    public void encodesElementsInBoundedChunks() throws Exception {
+        List<Item> items = items(20000);
+        JsonArrayEncoder encoder = new JsonArrayEncoder(new GsonCodec(), items.iterator(), null);
+        ByteBuf all = Unpooled.buffer();
+        int chunks = 0;
+        while (!encoder.isEndOfInput()) {
+            HttpContent chunk = encoder.readChunk(UnpooledByteBufAllocator.DEFAULT);
+            //一块最多超过一个元素的长度
+            assertTrue(chunk.content().readableBytes() < JsonArrayEncoder.CHUNK_SIZE + 64);
+            assertEquals(encoder.isEndOfInput(), chunk instanceof LastHttpContent);
+            all.writeBytes(chunk.content());
+            chunk.release();
+            chunks++;
+        }
+        assertTrue(chunks > 1);
+        assertEquals(new Gson().toJson(items), all.toString(StandardCharsets.UTF_8));
+        assertEquals(all.readableBytes(), encoder.progress());
+        all.release();
+
+        JsonArrayEncoder empty = new JsonArrayEncoder(new GsonCodec(), Collections.emptyIterator(), null);
+        HttpContent chunk = empty.readChunk(UnpooledByteBufAllocator.DEFAULT);
+        assertEquals("[]", chunk.content().toString(StandardCharsets.UTF_8));
+        chunk.release();
+    }
+
+    @Test
+    public void largeCollectionIsChunked() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.text("ok"));
+            NettyProxy proxy = new NettyProxy();
+            proxy.baseUrl(server.baseUrl()).streamingBodyThreshold(64 * 1024);
+            Api api = (Api) proxy.bind(Api.class);
+
+            List<Item> large = items(20000);
+            assertEquals("ok", api.list(large).execute());
+            RecordedRequest request = server.takeRequest(1000);
+            assertEquals(new Gson().toJson(large), request.bodyAsString());
+            //chunked请求是HTTP/1.1，必须带有Host
+            assertEquals("127.0.0.1:" + server.port(), request.headers().get(HttpHeaderNames.HOST));
+
+            //小于阈值的请求体一次编码，带Content-Length
+            List<Item> small = items(10);
+            assertEquals("ok", api.list(small).execute());
+            request = server.takeRequest(1000);
+            assertEquals(new Gson().toJson(small), request.bodyAsString());
+            assertEquals(String.valueOf(request.body().length), request.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        }
+    }
+
+    @Test
+    public void streamIsEncodedLazilyAndClosed() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.text("ok"));
+            NettyProxy proxy = new NettyProxy();
+            proxy.baseUrl(server.baseUrl());
+            Api api = (Api) proxy.bind(Api.class);
+
+            AtomicBoolean closed = new AtomicBoolean();
+            Stream<Item> items = IntStream.range(0, 50000).mapToObj(Item::new).onClose(() -> closed.set(true));
+            assertEquals("ok", api.stream(items).execute());
+            assertTrue(closed.get());
+            assertEquals(new Gson().toJson(items(50000)), server.takeRequest(1000).bodyAsString());
+        }
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new Item(i));
+        }
+        return items;
+    }
+}
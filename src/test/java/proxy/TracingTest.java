@@ -0,0 +1,42 @@
+package proxy;
+
+import io.netty.handler.codec.http.HttpMethod;
+import mock.MockResponse;
+import mock.MockServer;
+import mock.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import trace.InMemorySpanSink;
+import trace.Phase;
+import trace.Span;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TracingTest {
+    @Test
+    public void recordsPhasesAndPropagatesTraceparent() throws Exception {
+        try (MockServer server = MockServer.start()) {
+            server.otherwise(MockResponse.text("ok"));
+
+            InMemorySpanSink sink = new InMemorySpanSink();
+            NettyRequest<String> request = new NettyRequest<>();
+            request.httpMethod(HttpMethod.GET).url(server.baseUrl() + "/users")
+                    .resultType(String.class).tracing(sink);
+            assertEquals("ok", request.execute());
+
+            //span在回调返回后才导出，可能晚于execute()返回
+            for (int i = 0; i < 100 && sink.spans().isEmpty(); i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, sink.spans().size());
+            Span span = sink.spans().get(0);
+            assertEquals("GET /users", span.name());
+            assertEquals(200, span.status());
+            assertNull(span.error());
+            for (Phase phase : Phase.values()) {
+                assertTrue(span.duration(phase) >= 0, phase + " was not recorded: " + span);
+            }
+            RecordedRequest received = server.takeRequest(5000);
+            assertEquals(span.traceparent(), received.headers().get("traceparent"), received.toString());
+        }
+    }
+}
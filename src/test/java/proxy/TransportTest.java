@@ -0,0 +1,58 @@
+package proxy;
+
+import annotation.method.Get;
+import annotation.param.PathVariable;
+import exceptions.HttpRequestException;
+import io.netty.channel.epoll.Epoll;
+import io.netty.handler.codec.http.HttpMethod;
+import mock.MockResponse;
+import mock.MockServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TransportTest {
+    interface Api {
+        @Get("/users/{id}")
+        NettyRequest<Map<String, Object>> user(@PathVariable("id") String id);
+    }
+
+    @Test
+    public void localChannel() throws Exception {
+        try (MockServer server = MockServer.startLocal("transport-test")) {
+            server.route(HttpMethod.GET, "/users/1", MockResponse.ok("{\"name\":\"tom\"}"));
+            assertEquals("local://transport-test", server.baseUrl());
+            assertEquals("tom", bind(server.baseUrl()).user("1").execute().get("name"));
+            assertEquals("/users/1", server.takeRequest(1000).uri());
+        }
+    }
+
+    @Test
+    public void domainSocket(@TempDir Path dir) throws Exception {
+        assumeTrue(Epoll.isAvailable(), "epoll is not available");
+        try (MockServer server = MockServer.startDomainSocket(dir.resolve("api.sock"))) {
+            server.route(HttpMethod.GET, "/users/1", MockResponse.ok("{\"name\":\"tom\"}"));
+            assertEquals("tom", bind(server.baseUrl()).user("1").execute().get("name"));
+            //请求路径不包含socket路径
+            assertEquals("/users/1", server.takeRequest(1000).uri());
+        }
+    }
+
+    @Test
+    public void missingSocketFails(@TempDir Path dir) {
+        assumeTrue(Epoll.isAvailable(), "epoll is not available");
+        Api api = bind("unix://" + dir.resolve("missing.sock") + ":");
+        assertThrows(HttpRequestException.class, () -> api.user("1").execute());
+    }
+
+    private static Api bind(String baseUrl) {
+        NettyProxy proxy = new NettyProxy();
+        proxy.baseUrl(baseUrl);
+        return (Api) proxy.bind(Api.class);
+    }
+}
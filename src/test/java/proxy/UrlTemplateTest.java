@@ -0,0 +1,80 @@
+package proxy;
+
+import annotation.param.PathVariable;
+import annotation.param.RequestParam;
+import exceptions.NettyProxyException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlTemplateTest {
+    interface Api {
+        void user(@PathVariable("id") String id, @RequestParam("q") String query, @RequestParam("tag") Object tags);
+    }
+
+    private static Annotation[][] annotations() throws Exception {
+        Method method = Api.class.getDeclaredMethod("user", String.class, String.class, Object.class);
+        return method.getParameterAnnotations();
+    }
+
+    @Test
+    public void expandsPathAndQuery() throws Exception {
+        UrlTemplate template = UrlTemplate.compile("/api/users/{id}/profile", annotations());
+        assertEquals("/api/users/a%2Fb%20c/profile?q=x%26y%3Dz%2B&tag=1&tag=2",
+                template.expand(new Object[]{"a/b c", "x&y=z+", Arrays.asList(1, 2)}));
+    }
+
+    @Test
+    public void skipsNullQueryParams() throws Exception {
+        UrlTemplate template = UrlTemplate.compile("/users/{id}", annotations());
+        assertEquals("/users/42?tag=a", template.expand(new Object[]{"42", null, new String[]{"a"}}));
+        assertEquals("/users/42", template.expand(new Object[]{"42", null, null}));
+    }
+
+    @Test
+    public void appendsToExistingQuery() throws Exception {
+        UrlTemplate template = UrlTemplate.compile("/users/{id}?v=1", annotations());
+        assertEquals("/users/%E4%B8%AD?v=1&q=%F0%9F%98%80", template.expand(new Object[]{"中", "😀", null}));
+    }
+
+    @Test
+    public void rejectsUnboundVariable() {
+        assertThrows(NettyProxyException.class, () -> UrlTemplate.compile("/users/{name}", annotations()));
+    }
+
+    @Test
+    public void parsesEndpoint() {
+        Endpoint endpoint = Endpoint.parse("http://localhost:8080/api");
+        assertEquals("localhost", endpoint.host());
+        assertEquals(8080, endpoint.port());
+        assertEquals("/api", Endpoint.stripOrigin("http://localhost:8080/api"));
+        assertEquals(80, Endpoint.parse("http://example.com").port());
+    }
+
+    @Test
+    public void rejectsHttpsWithoutTls() {
+        NettyProxyException e = assertThrows(NettyProxyException.class,
+                () -> Endpoint.parse("https://example.com/api"));
+        assertTrue(e.getMessage().contains("https"), e.getMessage());
+        assertThrows(NettyProxyException.class, () -> Endpoint.parse("HTTPS://example.com:8443"));
+    }
+
+    @Test
+    public void parsesSocketEndpoints() {
+        Endpoint unix = Endpoint.parse("unix:///var/run/app.sock:/api?v=1");
+        assertEquals(Transport.DOMAIN_SOCKET, unix.transport());
+        assertEquals("/var/run/app.sock", unix.host());
+        assertEquals("/api?v=1", Endpoint.stripOrigin("unix:///var/run/app.sock:/api?v=1"));
+        assertEquals("", Endpoint.stripOrigin("unix:///var/run/app.sock"));
+
+        Endpoint local = Endpoint.parse("local://api/users");
+        assertEquals(Transport.LOCAL, local.transport());
+        assertEquals("api", local.host());
+        assertEquals("/users", Endpoint.stripOrigin("local://api/users"));
+        assertThrows(NettyProxyException.class, () -> Endpoint.parse("local:///users"));
+    }
+}
@@ -0,0 +1,47 @@
+package trace;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpanTest {
+    @Test
+    public void injectsNewTrace() {
+        Span span = new Span("GET /");
+        HttpHeaders headers = new DefaultHttpHeaders();
+        span.inject(headers);
+
+        String traceparent = headers.get(Span.TRACEPARENT);
+        assertTrue(traceparent.matches("00-[0-9a-f]{32}-[0-9a-f]{16}-01"), traceparent);
+        assertNull(span.parentId());
+    }
+
+    @Test
+    public void joinsIncomingTrace() {
+        Span span = new Span("GET /");
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.set(Span.TRACEPARENT, "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00");
+        span.inject(headers);
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", span.traceId());
+        assertEquals("00f067aa0ba902b7", span.parentId());
+        assertEquals("00-4bf92f3577b34da6a3ce929d0e0e4736-" + span.spanId() + "-00", headers.get(Span.TRACEPARENT));
+    }
+
+    @Test
+    public void phasesStartWhereThePreviousRecordedPhaseEnded() {
+        Span span = new Span("GET /");
+        span.mark(Phase.CONNECT);
+        span.mark(Phase.WRITE);
+        assertEquals(-1, span.duration(Phase.BUILD));
+        assertTrue(span.duration(Phase.WRITE) >= 0);
+        assertEquals(span.totalNanos(), span.duration(Phase.CONNECT) + span.duration(Phase.WRITE));
+
+        assertTrue(span.end(null));
+        assertFalse(span.end(null));
+        span.mark(Phase.READ);
+        assertEquals(-1, span.duration(Phase.READ));
+    }
+}